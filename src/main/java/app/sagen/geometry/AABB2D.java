@@ -7,6 +7,21 @@ package app.sagen.geometry;
  */
 public class AABB2D {
 
+    /**
+     * Returned by {@link #getSeparatingAxis(AABB2D)} when the AABB's overlap on every axis
+     */
+    public static final int AXIS_NONE = -1;
+
+    /**
+     * The x axis
+     */
+    public static final int AXIS_X = 0;
+
+    /**
+     * The y axis
+     */
+    public static final int AXIS_Y = 1;
+
     /*
      * The x location
      */
@@ -122,29 +137,30 @@ public class AABB2D {
      * @return True if they intersect, false if not.
      */
     public boolean isIntersecting(AABB2D other) {
-        // check if size is less then or equal to 0
-        if (other.w <= 0 || other.h <= 0 || this.w <= 0 || this.h <= 0) return false;
-
-        // calculate maximum x and y
-        int otherMaxX = other.w + other.x;
-        int otherMaxY = other.h + other.y;
-        int thisMaxX = this.w + this.x;
-        int thisMaxY = this.h + this.y;
-
-        // test for intersection
-        return ((otherMaxX < other.x || otherMaxX > this.x) &&
-                (otherMaxY < other.y || otherMaxY > this.y) &&
-                (thisMaxX < this.x || thisMaxX > other.x) &&
-                (thisMaxY < this.y || thisMaxY > other.y));
+        return isIntersecting(x, y, w, h, other.x, other.y, other.w, other.h);
     }
 
     /**
      * Calculates the intersection between two AABB's
+     * If the AABB's do not overlap, the intersection will have a width and/or height of 0.
      *
      * @param other The other AABB
      * @return The intersection
      */
     public AABB2D getIntersection(AABB2D other) {
+        return getIntersection(other, new AABB2D(0, 0, 0, 0));
+    }
+
+    /**
+     * Calculates the intersection between two AABB's and stores it in a destination AABB.
+     * No new objects are created, and the destination may be this AABB or the other AABB.
+     * If the AABB's do not overlap, the intersection will have a width and/or height of 0.
+     *
+     * @param other The other AABB
+     * @param dest  The AABB to store the result in
+     * @return The destination AABB
+     */
+    public AABB2D getIntersection(AABB2D other, AABB2D dest) {
         // define a rectangle defined by this AABB
         int thisMinX = this.x;
         int thisMinY = this.y;
@@ -161,12 +177,367 @@ public class AABB2D {
         if (thisMaxX > otherMaxX) thisMaxX = otherMaxX;
         if (thisMaxY > otherMaxY) thisMaxY = otherMaxY;
 
-        // subrtact the position
+        // subtract the position, a negative size means there is no overlap
         thisMaxX -= thisMinX;
         thisMaxY -= thisMinY;
+        if (thisMaxX < 0) thisMaxX = 0;
+        if (thisMaxY < 0) thisMaxY = 0;
+
+        // store the overlap in the destination
+        dest.setSizeAndPosition(thisMinX, thisMinY, thisMaxX, thisMaxY);
+        return dest;
+    }
+
+    /**
+     * Calculates the length of the overlap between two AABB's along the x axis.
+     * A negative value is the size of the gap between them.
+     *
+     * @param other The other AABB
+     * @return The overlap along the x axis
+     */
+    public int getOverlapX(AABB2D other) {
+        return getOverlap(x, w, other.x, other.w);
+    }
+
+    /**
+     * Calculates the length of the overlap between two AABB's along the y axis.
+     * A negative value is the size of the gap between them.
+     *
+     * @param other The other AABB
+     * @return The overlap along the y axis
+     */
+    public int getOverlapY(AABB2D other) {
+        return getOverlap(y, h, other.y, other.h);
+    }
+
+    /**
+     * Calculates the area of the intersection between two AABB's without creating a new AABB
+     *
+     * @param other The other AABB
+     * @return The area of the intersection, or 0 if they do not overlap
+     */
+    public long getOverlapArea(AABB2D other) {
+        return getOverlapArea(x, y, w, h, other.x, other.y, other.w, other.h);
+    }
+
+    /**
+     * Finds the axis that separates two AABB's the most.
+     * If the AABB's are separated on both axes, the axis with the largest gap is returned.
+     *
+     * @param other The other AABB
+     * @return {@link #AXIS_X}, {@link #AXIS_Y}, or {@link #AXIS_NONE} if they overlap on every axis
+     */
+    public int getSeparatingAxis(AABB2D other) {
+        int overlapX = getOverlapX(other);
+        int overlapY = getOverlapY(other);
+
+        // the smallest overlap is the largest gap
+        if (overlapX <= 0 && overlapX <= overlapY) return AXIS_X;
+        if (overlapY <= 0) return AXIS_Y;
+        return AXIS_NONE;
+    }
+
+    /**
+     * Sweeps this AABB along a movement and finds the time of impact with a static AABB.
+     * Fast moving AABB's can not pass through thin AABB's, because the whole movement is tested.
+     * If the AABB's already overlap, the time of impact is 0 and the normal is zero.
+     *
+     * @param vx    The movement along x
+     * @param vy    The movement along y
+     * @param other The other AABB
+     * @param hit   The result to store the time of impact and contact normal in
+     * @return True if they collide during the movement, false if not.
+     */
+    public boolean sweep(double vx, double vy, AABB2D other, HitResult hit) {
+        return sweep(x, y, w, h, vx, vy, other.x, other.y, other.w, other.h, 1, hit);
+    }
+
+    /**
+     * Sweeps this AABB and another moving AABB and finds their time of impact.
+     * Both movements are expected to happen over the same time step.
+     *
+     * @param vx      The movement along x
+     * @param vy      The movement along y
+     * @param other   The other AABB
+     * @param otherVx The movement of the other AABB along x
+     * @param otherVy The movement of the other AABB along y
+     * @param hit     The result to store the time of impact and contact normal in
+     * @return True if they collide during the movement, false if not.
+     */
+    public boolean sweep(double vx, double vy, AABB2D other, double otherVx, double otherVy, HitResult hit) {
+        // sweep with the movement relative to the other AABB
+        return sweep(x, y, w, h, vx - otherVx, vy - otherVy, other.x, other.y, other.w, other.h, 1, hit);
+    }
+
+    /**
+     * Sweeps this AABB along a movement against a set of static AABB's, and finds the first one it collides with.
+     * The candidates are typically the result of a broad-phase query for the area covered by the movement.
+     *
+     * @param vx         The movement along x
+     * @param vy         The movement along y
+     * @param others     The AABB's to test against
+     * @param candidates The indices in others to test
+     * @param count      The number of candidates
+     * @param hit        The result to store the time of impact, contact normal and index in
+     * @return The index of the first AABB hit, or -1 if none was hit
+     */
+    public int sweep(double vx, double vy, AABB2D[] others, int[] candidates, int count, HitResult hit) {
+        int first = -1;
+        double maxTime = 1;
+        for (int i = 0; i < count && maxTime >= 0; i++) {
+            AABB2D other = others[candidates[i]];
+            if (sweep(x, y, w, h, vx, vy, other.x, other.y, other.w, other.h, maxTime, hit)) {
+                first = candidates[i];
+
+                // only accept hits that are strictly earlier from now on
+                maxTime = Math.nextDown(hit.getTime());
+            }
+        }
+        hit.setIndex(first);
+        return first;
+    }
+
+    /**
+     * Casts a ray or line segment against this AABB using the slab method
+     *
+     * @param ray The ray
+     * @return The time along the ray where it enters this AABB, 0 if it starts inside, or -1 if it misses
+     */
+    public double raycast(Ray2D ray) {
+        return raycast(x, y, w, h, ray, ray.getLength(), null);
+    }
+
+    /**
+     * Casts a ray or line segment against this AABB using the slab method, and finds the normal of the side it enters.
+     * If the ray starts inside this AABB, the normal is zero.
+     *
+     * @param ray The ray
+     * @param hit The result to store the time and normal in
+     * @return The time along the ray where it enters this AABB, 0 if it starts inside, or -1 if it misses
+     */
+    public double raycast(Ray2D ray, HitResult hit) {
+        return raycast(x, y, w, h, ray, ray.getLength(), hit);
+    }
+
+    /**
+     * Calculates if two AABB's described by their position and size are intersecting.
+     * This works on primitives only, so no AABB instances are needed.
+     *
+     * @param ax The position x of the first AABB
+     * @param ay The position y of the first AABB
+     * @param aw The width of the first AABB
+     * @param ah The height of the first AABB
+     * @param bx The position x of the second AABB
+     * @param by The position y of the second AABB
+     * @param bw The width of the second AABB
+     * @param bh The height of the second AABB
+     * @return True if they intersect, false if not.
+     */
+    public static boolean isIntersecting(int ax, int ay, int aw, int ah, int bx, int by, int bw, int bh) {
+        // check if size is less then or equal to 0
+        if (bw <= 0 || bh <= 0 || aw <= 0 || ah <= 0) return false;
+
+        // calculate maximum x and y
+        int otherMaxX = bw + bx;
+        int otherMaxY = bh + by;
+        int thisMaxX = aw + ax;
+        int thisMaxY = ah + ay;
+
+        // test for intersection
+        return ((otherMaxX < bx || otherMaxX > ax) &&
+                (otherMaxY < by || otherMaxY > ay) &&
+                (thisMaxX < ax || thisMaxX > bx) &&
+                (thisMaxY < ay || thisMaxY > by));
+    }
+
+    /**
+     * Calculates the area of the intersection between two AABB's described by their position and size.
+     * This works on primitives only, so no AABB instances are needed.
+     *
+     * @param ax The position x of the first AABB
+     * @param ay The position y of the first AABB
+     * @param aw The width of the first AABB
+     * @param ah The height of the first AABB
+     * @param bx The position x of the second AABB
+     * @param by The position y of the second AABB
+     * @param bw The width of the second AABB
+     * @param bh The height of the second AABB
+     * @return The area of the intersection, or 0 if they do not overlap
+     */
+    public static long getOverlapArea(int ax, int ay, int aw, int ah, int bx, int by, int bw, int bh) {
+        int overlapX = getOverlap(ax, aw, bx, bw);
+        if (overlapX <= 0) return 0;
+
+        int overlapY = getOverlap(ay, ah, by, bh);
+        if (overlapY <= 0) return 0;
+
+        return (long) overlapX * overlapY;
+    }
 
-        // return a new AABB representing the overlap.
-        return new AABB2D(thisMinX, thisMinY, thisMaxX, thisMaxY);
+    /**
+     * Calculates the overlap of two intervals along a single axis.
+     * A negative value is the size of the gap between them.
+     *
+     * @param a  The start of the first interval
+     * @param al The length of the first interval
+     * @param b  The start of the second interval
+     * @param bl The length of the second interval
+     * @return The overlap of the intervals
+     */
+    static int getOverlap(int a, int al, int b, int bl) {
+        return Math.min(a + al, b + bl) - Math.max(a, b);
+    }
+
+    /**
+     * Sweeps one AABB described by its position and size against another, and finds the time of impact.
+     *
+     * @param ax      The position x of the moving AABB
+     * @param ay      The position y of the moving AABB
+     * @param aw      The width of the moving AABB
+     * @param ah      The height of the moving AABB
+     * @param vx      The movement along x
+     * @param vy      The movement along y
+     * @param bx      The position x of the static AABB
+     * @param by      The position y of the static AABB
+     * @param bw      The width of the static AABB
+     * @param bh      The height of the static AABB
+     * @param maxTime The latest time of impact to accept
+     * @param hit     The result to store the time of impact and contact normal in
+     * @return True if they collide before maxTime, false if not. The result is only updated on a collision.
+     */
+    static boolean sweep(int ax, int ay, int aw, int ah, double vx, double vy,
+                         int bx, int by, int bw, int bh, double maxTime, HitResult hit) {
+        // check if size is less then or equal to 0
+        if (bw <= 0 || bh <= 0 || aw <= 0 || ah <= 0) return false;
+
+        // find the time interval where the AABB's overlap on each axis
+        double entryX = getEntryTime(ax, aw, bx, bw, vx);
+        double entryY = getEntryTime(ay, ah, by, bh, vy);
+        double exitX = getExitTime(ax, aw, bx, bw, vx);
+        double exitY = getExitTime(ay, ah, by, bh, vy);
+
+        // they collide if the intervals of every axis overlap
+        double entry = Math.max(entryX, entryY);
+        double exit = Math.min(exitX, exitY);
+        if (entry >= exit || exit <= 0 || entry > maxTime) return false;
+
+        // already overlapping at the start of the movement
+        if (entry < 0) {
+            hit.set(0, 0, 0, 0);
+            return true;
+        }
+
+        // the normal points against the movement on the axis that was entered last
+        if (entryX >= entryY) {
+            hit.set(entry, vx > 0 ? -1 : 1, 0, 0);
+        } else {
+            hit.set(entry, 0, vy > 0 ? -1 : 1, 0);
+        }
+        return true;
+    }
+
+    /**
+     * Casts a ray against an AABB described by its position and size using the slab method
+     *
+     * @param bx      The position x of the AABB
+     * @param by      The position y of the AABB
+     * @param bw      The width of the AABB
+     * @param bh      The height of the AABB
+     * @param ray     The ray
+     * @param maxTime The latest time along the ray to accept
+     * @param hit     The result to store the time and normal in, or null
+     * @return The time along the ray where it enters the AABB, 0 if it starts inside, or -1 if it misses
+     */
+    static double raycast(int bx, int by, int bw, int bh, Ray2D ray, double maxTime, HitResult hit) {
+        // check if size is less then or equal to 0
+        if (bw <= 0 || bh <= 0) return -1;
+
+        double entry = 0;
+        double exit = maxTime;
+        int axis = AXIS_NONE;
+
+        // clip the ray against the slab between the sides along x
+        if (ray.getDirectionX() != 0) {
+            double near = (bx - ray.getOriginX()) * ray.getInverseX();
+            double far = ((double) bx + bw - ray.getOriginX()) * ray.getInverseX();
+            if (near > far) {
+                double swap = near;
+                near = far;
+                far = swap;
+            }
+            if (near > entry) {
+                entry = near;
+                axis = AXIS_X;
+            }
+            if (far < exit) exit = far;
+        } else if (ray.getOriginX() < bx || ray.getOriginX() > (double) bx + bw) {
+            return -1;
+        }
+
+        // clip the ray against the slab between the sides along y
+        if (ray.getDirectionY() != 0) {
+            double near = (by - ray.getOriginY()) * ray.getInverseY();
+            double far = ((double) by + bh - ray.getOriginY()) * ray.getInverseY();
+            if (near > far) {
+                double swap = near;
+                near = far;
+                far = swap;
+            }
+            if (near > entry) {
+                entry = near;
+                axis = AXIS_Y;
+            }
+            if (far < exit) exit = far;
+        } else if (ray.getOriginY() < by || ray.getOriginY() > (double) by + bh) {
+            return -1;
+        }
+
+        // the ray misses if it leaves a slab before entering the other
+        if (entry > exit) return -1;
+
+        // the normal points against the ray on the axis that was entered last
+        if (hit != null) {
+            if (axis == AXIS_X) {
+                hit.set(entry, ray.getDirectionX() > 0 ? -1 : 1, 0, 0);
+            } else if (axis == AXIS_Y) {
+                hit.set(entry, 0, ray.getDirectionY() > 0 ? -1 : 1, 0);
+            } else {
+                hit.set(entry, 0, 0, 0);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Calculates the time when a moving interval starts overlapping a static interval along a single axis.
+     *
+     * @param a  The start of the moving interval
+     * @param al The length of the moving interval
+     * @param b  The start of the static interval
+     * @param bl The length of the static interval
+     * @param v  The movement along the axis
+     * @return The entry time, negative infinity if they always overlap, or positive infinity if they never do
+     */
+    static double getEntryTime(int a, int al, int b, int bl, double v) {
+        if (v > 0) return (b - ((double) a + al)) / v;
+        if (v < 0) return (((double) b + bl) - a) / v;
+        return getOverlap(a, al, b, bl) > 0 ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Calculates the time when a moving interval stops overlapping a static interval along a single axis.
+     *
+     * @param a  The start of the moving interval
+     * @param al The length of the moving interval
+     * @param b  The start of the static interval
+     * @param bl The length of the static interval
+     * @param v  The movement along the axis
+     * @return The exit time, positive infinity if they always overlap, or negative infinity if they never do
+     */
+    static double getExitTime(int a, int al, int b, int bl, double v) {
+        if (v > 0) return (((double) b + bl) - a) / v;
+        if (v < 0) return (b - ((double) a + al)) / v;
+        return getOverlap(a, al, b, bl) > 0 ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
     }
 
     /**
@@ -0,0 +1,331 @@
+package app.sagen.geometry;
+
+/**
+ * This class is a representation of a collidable rectangle with double precision.
+ * It has the same methods as AABB2Df, so code can switch between single and double precision without other changes.
+ * It has the intersection, overlap and area methods of AABB2D, but not the separating axis, sweep or raycast methods.
+ *
+ * @author Sagen
+ */
+public class AABB2Dd {
+
+    /*
+     * The x location
+     */
+    private double x;
+
+    /*
+     * The y location
+     */
+    private double y;
+
+    /*
+     * The width of the AABB
+     */
+    private double w;
+
+    /*
+     * The height of the AABB
+     */
+    private double h;
+
+    /**
+     * Creates a new instance of the class
+     *
+     * @param x The position x
+     * @param y The position y
+     * @param w The width
+     * @param h The height
+     */
+    public AABB2Dd(double x, double y, double w, double h) {
+        this.x = x;
+        this.y = y;
+        this.w = w;
+        this.h = h;
+    }
+
+    /**
+     * Creates a new instance of the class with the same size and position as an AABB2D
+     *
+     * @param box The AABB to copy
+     */
+    public AABB2Dd(AABB2D box) {
+        this(box.getX(), box.getY(), box.getWidth(), box.getHeight());
+    }
+
+    /**
+     * Updates the size and position with new values
+     *
+     * @param x The position x
+     * @param y The position y
+     * @param w The width
+     * @param h The height
+     */
+    public void setSizeAndPosition(double x, double y, double w, double h) {
+        this.x = x;
+        this.y = y;
+        this.w = w;
+        this.h = h;
+    }
+
+    /**
+     * Updates the position
+     *
+     * @param x The position x
+     * @param y The position y
+     */
+    public void setPosition(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Updates the size
+     *
+     * @param w The width
+     * @param h The height
+     */
+    public void setSize(double w, double h) {
+        this.w = w;
+        this.h = h;
+    }
+
+    /**
+     * Gets the position x
+     *
+     * @return The x
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Gets the position y
+     *
+     * @return The y
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Gets the width
+     *
+     * @return The width
+     */
+    public double getWidth() {
+        return w;
+    }
+
+    /**
+     * Gets the height
+     *
+     * @return The height
+     */
+    public double getHeight() {
+        return h;
+    }
+
+    /**
+     * Calculates if the tho AABB's are intersecting
+     *
+     * @param other The other AABB
+     * @return True if they intersect, false if not.
+     */
+    public boolean isIntersecting(AABB2Dd other) {
+        // check if size is less then or equal to 0
+        if (other.w <= 0 || other.h <= 0 || this.w <= 0 || this.h <= 0) return false;
+
+        // test for intersection
+        return other.x + other.w > this.x &&
+                other.y + other.h > this.y &&
+                this.x + this.w > other.x &&
+                this.y + this.h > other.y;
+    }
+
+    /**
+     * Calculates the intersection between two AABB's
+     * If the AABB's do not overlap, the intersection will have a width and/or height of 0.
+     *
+     * @param other The other AABB
+     * @return The intersection
+     */
+    public AABB2Dd getIntersection(AABB2Dd other) {
+        return getIntersection(other, new AABB2Dd(0, 0, 0, 0));
+    }
+
+    /**
+     * Calculates the intersection between two AABB's and stores it in a destination AABB.
+     * No new objects are created, and the destination may be this AABB or the other AABB.
+     * If the AABB's do not overlap, the intersection will have a width and/or height of 0.
+     *
+     * @param other The other AABB
+     * @param dest  The AABB to store the result in
+     * @return The destination AABB
+     */
+    public AABB2Dd getIntersection(AABB2Dd other, AABB2Dd dest) {
+        // calculate the intersection by finding the biggest minimum and smallest maximum
+        double minX = Math.max(this.x, other.x);
+        double minY = Math.max(this.y, other.y);
+        double maxX = Math.min(this.x + this.w, other.x + other.w);
+        double maxY = Math.min(this.y + this.h, other.y + other.h);
+
+        // store the overlap in the destination, a negative size means there is no overlap
+        dest.setSizeAndPosition(minX, minY, Math.max(maxX - minX, 0), Math.max(maxY - minY, 0));
+        return dest;
+    }
+
+    /**
+     * Calculates the length of the overlap between two AABB's along the x axis.
+     * A negative value is the size of the gap between them.
+     *
+     * @param other The other AABB
+     * @return The overlap along the x axis
+     */
+    public double getOverlapX(AABB2Dd other) {
+        return Math.min(this.x + this.w, other.x + other.w) - Math.max(this.x, other.x);
+    }
+
+    /**
+     * Calculates the length of the overlap between two AABB's along the y axis.
+     * A negative value is the size of the gap between them.
+     *
+     * @param other The other AABB
+     * @return The overlap along the y axis
+     */
+    public double getOverlapY(AABB2Dd other) {
+        return Math.min(this.y + this.h, other.y + other.h) - Math.max(this.y, other.y);
+    }
+
+    /**
+     * Calculates the area of the intersection between two AABB's without creating a new AABB
+     *
+     * @param other The other AABB
+     * @return The area of the intersection, or 0 if they do not overlap
+     */
+    public double getOverlapArea(AABB2Dd other) {
+        double overlapX = getOverlapX(other);
+        if (overlapX <= 0) return 0;
+
+        double overlapY = getOverlapY(other);
+        if (overlapY <= 0) return 0;
+
+        return overlapX * overlapY;
+    }
+
+    /**
+     * Returns true if a point is inside this AABB.
+     * The minimum sides are inside and the maximum sides are outside, so a point is only inside one of two AABB's
+     * sharing a side.
+     *
+     * @param px The point x
+     * @param py The point y
+     * @return True if the point is inside, false if not.
+     */
+    public boolean containsPoint(double px, double py) {
+        return px >= x && py >= y && px < x + w && py < y + h;
+    }
+
+    /**
+     * Returns true if a point is inside this AABB.
+     *
+     * @param point The point
+     * @return True if the point is inside, false if not.
+     * @see #containsPoint(double, double)
+     */
+    public boolean containsPoint(MutableVector2D point) {
+        return containsPoint(point.getX(), point.getY());
+    }
+
+    /**
+     * Returns true if a point is inside this AABB.
+     *
+     * @param point The point
+     * @return True if the point is inside, false if not.
+     * @see #containsPoint(double, double)
+     */
+    public boolean containsPoint(Vector2D point) {
+        return containsPoint(point.getX(), point.getY());
+    }
+
+    /**
+     * Grows this AABB so that it includes a point.
+     * The max edges are moved just past a point on or beyond them, since {@link #containsPoint} does not count the
+     * max edges as inside, so containsPoint returns true for the point afterwards.
+     *
+     * @param px The point x
+     * @param py The point y
+     * @return This AABB instance
+     */
+    public AABB2Dd expandToInclude(double px, double py) {
+        double minX = Math.min(x, px);
+        double minY = Math.min(y, py);
+        w = sizePast(minX, Math.max(x + w, px), px);
+        h = sizePast(minY, Math.max(y + h, py), py);
+        x = minX;
+        y = minY;
+        return this;
+    }
+
+    /**
+     * Grows this AABB so that it includes a point, as described in {@link #expandToInclude(double, double)}
+     *
+     * @param point The point
+     * @return This AABB instance
+     */
+    public AABB2Dd expandToInclude(MutableVector2D point) {
+        return expandToInclude(point.getX(), point.getY());
+    }
+
+    /**
+     * Grows this AABB so that it includes a point, as described in {@link #expandToInclude(double, double)}
+     *
+     * @param point The point
+     * @return This AABB instance
+     */
+    public AABB2Dd expandToInclude(Vector2D point) {
+        return expandToInclude(point.getX(), point.getY());
+    }
+
+    /**
+     * Grows this AABB so that it includes another AABB
+     *
+     * @param other The other AABB
+     * @return This AABB instance
+     */
+    public AABB2Dd expandToInclude(AABB2Dd other) {
+        double minX = Math.min(x, other.x);
+        double minY = Math.min(y, other.y);
+        w = Math.max(x + w, other.x + other.w) - minX;
+        h = Math.max(y + h, other.y + other.h) - minY;
+        x = minX;
+        y = minY;
+        return this;
+    }
+
+    /**
+     * Calculates the size of a side from its min to its max, grown so that a point is below the max
+     *
+     * @param min The min of the side
+     * @param max The max of the side
+     * @param p   The point
+     * @return The size
+     */
+    private static double sizePast(double min, double max, double p) {
+        double size = max - min;
+        while (min + size <= p && size < Double.POSITIVE_INFINITY) {
+            size += Math.max(Math.ulp(size), Math.max(Math.ulp(min), Math.ulp(p)));
+        }
+        return size;
+    }
+
+    /**
+     * Creates a string representation of this class
+     *
+     * @return The string representation
+     */
+    @Override
+    public String toString() {
+        return "AABB2Dd[x=" + x + ", y=" + y + ", width=" + w + ", height=" + h + "]";
+    }
+}
@@ -7,6 +7,26 @@ package app.sagen.geometry;
  */
 public class AABB3D {
 
+    /**
+     * Returned by {@link #getSeparatingAxis(AABB3D)} when the AABB's overlap on every axis
+     */
+    public static final int AXIS_NONE = -1;
+
+    /**
+     * The x axis
+     */
+    public static final int AXIS_X = 0;
+
+    /**
+     * The y axis
+     */
+    public static final int AXIS_Y = 1;
+
+    /**
+     * The z axis
+     */
+    public static final int AXIS_Z = 2;
+
     /*
      * The x location
      */
@@ -162,33 +182,30 @@ public class AABB3D {
      * @return True if they intersect, false if not.
      */
     public boolean isIntersecting(AABB3D other) {
-        // check if size is less then or equal to 0
-        if (other.w <= 0 || other.h <= 0 || other.d <= 0 || this.w <= 0 || this.h <= 0 || this.d <= 0) return false;
-
-        // calculate maximum x and y
-        int otherMaxX = other.w + other.x;
-        int otherMaxY = other.h + other.y;
-        int otherMaxZ = other.d + other.z;
-        int thisMaxX = this.w + this.x;
-        int thisMaxY = this.h + this.y;
-        int thisMaxZ = this.d + this.z;
-
-        // test for intersection
-        return ((otherMaxX < other.x || otherMaxX > this.x) &&
-                (otherMaxY < other.y || otherMaxY > this.y) &&
-                (otherMaxZ < other.z || otherMaxZ > this.z) &&
-                (thisMaxX < this.x || thisMaxX > other.x) &&
-                (thisMaxY < this.y || thisMaxY > other.y) &&
-                (thisMaxZ < this.z || thisMaxZ > other.z));
+        return isIntersecting(x, y, z, w, h, d, other.x, other.y, other.z, other.w, other.h, other.d);
     }
 
     /**
      * Calculates the intersection between two AABB's
+     * If the AABB's do not overlap, the intersection will have a width, height and/or depth of 0.
      *
      * @param other The other AABB
      * @return The intersection
      */
     public AABB3D getIntersection(AABB3D other) {
+        return getIntersection(other, new AABB3D(0, 0, 0, 0, 0, 0));
+    }
+
+    /**
+     * Calculates the intersection between two AABB's and stores it in a destination AABB.
+     * No new objects are created, and the destination may be this AABB or the other AABB.
+     * If the AABB's do not overlap, the intersection will have a width, height and/or depth of 0.
+     *
+     * @param other The other AABB
+     * @param dest  The AABB to store the result in
+     * @return The destination AABB
+     */
+    public AABB3D getIntersection(AABB3D other, AABB3D dest) {
         // define a rectangle defined by this AABB
         int thisMinX = this.x;
         int thisMinY = this.y;
@@ -210,13 +227,390 @@ public class AABB3D {
         if (thisMaxY > otherMaxY) thisMaxY = otherMaxY;
         if (thisMaxZ > otherMaxZ) thisMaxZ = otherMaxZ;
 
-        // subrtact the position
+        // subtract the position, a negative size means there is no overlap
         thisMaxX -= thisMinX;
         thisMaxY -= thisMinY;
         thisMaxZ -= thisMinZ;
+        if (thisMaxX < 0) thisMaxX = 0;
+        if (thisMaxY < 0) thisMaxY = 0;
+        if (thisMaxZ < 0) thisMaxZ = 0;
+
+        // store the overlap in the destination
+        dest.setSizeAndPosition(thisMinX, thisMinY, thisMinZ, thisMaxX, thisMaxY, thisMaxZ);
+        return dest;
+    }
+
+    /**
+     * Calculates the length of the overlap between two AABB's along the x axis.
+     * A negative value is the size of the gap between them.
+     *
+     * @param other The other AABB
+     * @return The overlap along the x axis
+     */
+    public int getOverlapX(AABB3D other) {
+        return AABB2D.getOverlap(x, w, other.x, other.w);
+    }
+
+    /**
+     * Calculates the length of the overlap between two AABB's along the y axis.
+     * A negative value is the size of the gap between them.
+     *
+     * @param other The other AABB
+     * @return The overlap along the y axis
+     */
+    public int getOverlapY(AABB3D other) {
+        return AABB2D.getOverlap(y, h, other.y, other.h);
+    }
+
+    /**
+     * Calculates the length of the overlap between two AABB's along the z axis.
+     * A negative value is the size of the gap between them.
+     *
+     * @param other The other AABB
+     * @return The overlap along the z axis
+     */
+    public int getOverlapZ(AABB3D other) {
+        return AABB2D.getOverlap(z, d, other.z, other.d);
+    }
+
+    /**
+     * Calculates the volume of the intersection between two AABB's without creating a new AABB
+     *
+     * @param other The other AABB
+     * @return The volume of the intersection, or 0 if they do not overlap
+     */
+    public long getOverlapVolume(AABB3D other) {
+        return getOverlapVolume(x, y, z, w, h, d, other.x, other.y, other.z, other.w, other.h, other.d);
+    }
+
+    /**
+     * Finds the axis that separates two AABB's the most.
+     * If the AABB's are separated on several axes, the axis with the largest gap is returned.
+     *
+     * @param other The other AABB
+     * @return {@link #AXIS_X}, {@link #AXIS_Y}, {@link #AXIS_Z}, or {@link #AXIS_NONE} if they overlap on every axis
+     */
+    public int getSeparatingAxis(AABB3D other) {
+        int overlapX = getOverlapX(other);
+        int overlapY = getOverlapY(other);
+        int overlapZ = getOverlapZ(other);
+
+        // the smallest overlap is the largest gap
+        if (overlapX <= 0 && overlapX <= overlapY && overlapX <= overlapZ) return AXIS_X;
+        if (overlapY <= 0 && overlapY <= overlapZ) return AXIS_Y;
+        if (overlapZ <= 0) return AXIS_Z;
+        return AXIS_NONE;
+    }
+
+    /**
+     * Sweeps this AABB along a movement and finds the time of impact with a static AABB.
+     * Fast moving AABB's can not pass through thin AABB's, because the whole movement is tested.
+     * If the AABB's already overlap, the time of impact is 0 and the normal is zero.
+     *
+     * @param vx    The movement along x
+     * @param vy    The movement along y
+     * @param vz    The movement along z
+     * @param other The other AABB
+     * @param hit   The result to store the time of impact and contact normal in
+     * @return True if they collide during the movement, false if not.
+     */
+    public boolean sweep(double vx, double vy, double vz, AABB3D other, HitResult hit) {
+        return sweep(x, y, z, w, h, d, vx, vy, vz, other.x, other.y, other.z, other.w, other.h, other.d, 1, hit);
+    }
+
+    /**
+     * Sweeps this AABB and another moving AABB and finds their time of impact.
+     * Both movements are expected to happen over the same time step.
+     *
+     * @param vx      The movement along x
+     * @param vy      The movement along y
+     * @param vz      The movement along z
+     * @param other   The other AABB
+     * @param otherVx The movement of the other AABB along x
+     * @param otherVy The movement of the other AABB along y
+     * @param otherVz The movement of the other AABB along z
+     * @param hit     The result to store the time of impact and contact normal in
+     * @return True if they collide during the movement, false if not.
+     */
+    public boolean sweep(double vx, double vy, double vz, AABB3D other,
+                         double otherVx, double otherVy, double otherVz, HitResult hit) {
+        // sweep with the movement relative to the other AABB
+        return sweep(x, y, z, w, h, d, vx - otherVx, vy - otherVy, vz - otherVz,
+                other.x, other.y, other.z, other.w, other.h, other.d, 1, hit);
+    }
+
+    /**
+     * Sweeps this AABB along a movement against a set of static AABB's, and finds the first one it collides with.
+     * The candidates are typically the result of a broad-phase query for the volume covered by the movement.
+     *
+     * @param vx         The movement along x
+     * @param vy         The movement along y
+     * @param vz         The movement along z
+     * @param others     The AABB's to test against
+     * @param candidates The indices in others to test
+     * @param count      The number of candidates
+     * @param hit        The result to store the time of impact, contact normal and index in
+     * @return The index of the first AABB hit, or -1 if none was hit
+     */
+    public int sweep(double vx, double vy, double vz, AABB3D[] others, int[] candidates, int count, HitResult hit) {
+        int first = -1;
+        double maxTime = 1;
+        for (int i = 0; i < count && maxTime >= 0; i++) {
+            AABB3D other = others[candidates[i]];
+            if (sweep(x, y, z, w, h, d, vx, vy, vz, other.x, other.y, other.z, other.w, other.h, other.d, maxTime, hit)) {
+                first = candidates[i];
+
+                // only accept hits that are strictly earlier from now on
+                maxTime = Math.nextDown(hit.getTime());
+            }
+        }
+        hit.setIndex(first);
+        return first;
+    }
+
+    /**
+     * Casts a ray or line segment against this AABB using the slab method
+     *
+     * @param ray The ray
+     * @return The time along the ray where it enters this AABB, 0 if it starts inside, or -1 if it misses
+     */
+    public double raycast(Ray3D ray) {
+        return raycast(x, y, z, w, h, d, ray, ray.getLength(), null);
+    }
+
+    /**
+     * Casts a ray or line segment against this AABB using the slab method, and finds the normal of the side it enters.
+     * If the ray starts inside this AABB, the normal is zero.
+     *
+     * @param ray The ray
+     * @param hit The result to store the time and normal in
+     * @return The time along the ray where it enters this AABB, 0 if it starts inside, or -1 if it misses
+     */
+    public double raycast(Ray3D ray, HitResult hit) {
+        return raycast(x, y, z, w, h, d, ray, ray.getLength(), hit);
+    }
+
+    /**
+     * Calculates if two AABB's described by their position and size are intersecting.
+     * This works on primitives only, so no AABB instances are needed.
+     *
+     * @param ax The position x of the first AABB
+     * @param ay The position y of the first AABB
+     * @param az The position z of the first AABB
+     * @param aw The width of the first AABB
+     * @param ah The height of the first AABB
+     * @param ad The depth of the first AABB
+     * @param bx The position x of the second AABB
+     * @param by The position y of the second AABB
+     * @param bz The position z of the second AABB
+     * @param bw The width of the second AABB
+     * @param bh The height of the second AABB
+     * @param bd The depth of the second AABB
+     * @return True if they intersect, false if not.
+     */
+    public static boolean isIntersecting(int ax, int ay, int az, int aw, int ah, int ad,
+                                         int bx, int by, int bz, int bw, int bh, int bd) {
+        // check if size is less then or equal to 0
+        if (bw <= 0 || bh <= 0 || bd <= 0 || aw <= 0 || ah <= 0 || ad <= 0) return false;
+
+        // calculate maximum x, y and z
+        int otherMaxX = bw + bx;
+        int otherMaxY = bh + by;
+        int otherMaxZ = bd + bz;
+        int thisMaxX = aw + ax;
+        int thisMaxY = ah + ay;
+        int thisMaxZ = ad + az;
+
+        // test for intersection
+        return ((otherMaxX < bx || otherMaxX > ax) &&
+                (otherMaxY < by || otherMaxY > ay) &&
+                (otherMaxZ < bz || otherMaxZ > az) &&
+                (thisMaxX < ax || thisMaxX > bx) &&
+                (thisMaxY < ay || thisMaxY > by) &&
+                (thisMaxZ < az || thisMaxZ > bz));
+    }
+
+    /**
+     * Calculates the volume of the intersection between two AABB's described by their position and size.
+     * This works on primitives only, so no AABB instances are needed.
+     *
+     * @param ax The position x of the first AABB
+     * @param ay The position y of the first AABB
+     * @param az The position z of the first AABB
+     * @param aw The width of the first AABB
+     * @param ah The height of the first AABB
+     * @param ad The depth of the first AABB
+     * @param bx The position x of the second AABB
+     * @param by The position y of the second AABB
+     * @param bz The position z of the second AABB
+     * @param bw The width of the second AABB
+     * @param bh The height of the second AABB
+     * @param bd The depth of the second AABB
+     * @return The volume of the intersection, or 0 if they do not overlap
+     */
+    public static long getOverlapVolume(int ax, int ay, int az, int aw, int ah, int ad,
+                                        int bx, int by, int bz, int bw, int bh, int bd) {
+        int overlapX = AABB2D.getOverlap(ax, aw, bx, bw);
+        if (overlapX <= 0) return 0;
+
+        int overlapY = AABB2D.getOverlap(ay, ah, by, bh);
+        if (overlapY <= 0) return 0;
+
+        int overlapZ = AABB2D.getOverlap(az, ad, bz, bd);
+        if (overlapZ <= 0) return 0;
+
+        return (long) overlapX * overlapY * overlapZ;
+    }
+
+    /**
+     * Casts a ray against an AABB described by its position and size using the slab method
+     *
+     * @param bx      The position x of the AABB
+     * @param by      The position y of the AABB
+     * @param bz      The position z of the AABB
+     * @param bw      The width of the AABB
+     * @param bh      The height of the AABB
+     * @param bd      The depth of the AABB
+     * @param ray     The ray
+     * @param maxTime The latest time along the ray to accept
+     * @param hit     The result to store the time and normal in, or null
+     * @return The time along the ray where it enters the AABB, 0 if it starts inside, or -1 if it misses
+     */
+    static double raycast(int bx, int by, int bz, int bw, int bh, int bd, Ray3D ray, double maxTime, HitResult hit) {
+        // check if size is less then or equal to 0
+        if (bw <= 0 || bh <= 0 || bd <= 0) return -1;
+
+        double entry = 0;
+        double exit = maxTime;
+        int axis = AXIS_NONE;
+
+        // clip the ray against the slab between the sides along x
+        if (ray.getDirectionX() != 0) {
+            double near = (bx - ray.getOriginX()) * ray.getInverseX();
+            double far = ((double) bx + bw - ray.getOriginX()) * ray.getInverseX();
+            if (near > far) {
+                double swap = near;
+                near = far;
+                far = swap;
+            }
+            if (near > entry) {
+                entry = near;
+                axis = AXIS_X;
+            }
+            if (far < exit) exit = far;
+        } else if (ray.getOriginX() < bx || ray.getOriginX() > (double) bx + bw) {
+            return -1;
+        }
+
+        // clip the ray against the slab between the sides along y
+        if (ray.getDirectionY() != 0) {
+            double near = (by - ray.getOriginY()) * ray.getInverseY();
+            double far = ((double) by + bh - ray.getOriginY()) * ray.getInverseY();
+            if (near > far) {
+                double swap = near;
+                near = far;
+                far = swap;
+            }
+            if (near > entry) {
+                entry = near;
+                axis = AXIS_Y;
+            }
+            if (far < exit) exit = far;
+        } else if (ray.getOriginY() < by || ray.getOriginY() > (double) by + bh) {
+            return -1;
+        }
+
+        // clip the ray against the slab between the sides along z
+        if (ray.getDirectionZ() != 0) {
+            double near = (bz - ray.getOriginZ()) * ray.getInverseZ();
+            double far = ((double) bz + bd - ray.getOriginZ()) * ray.getInverseZ();
+            if (near > far) {
+                double swap = near;
+                near = far;
+                far = swap;
+            }
+            if (near > entry) {
+                entry = near;
+                axis = AXIS_Z;
+            }
+            if (far < exit) exit = far;
+        } else if (ray.getOriginZ() < bz || ray.getOriginZ() > (double) bz + bd) {
+            return -1;
+        }
+
+        // the ray misses if it leaves a slab before entering the others
+        if (entry > exit) return -1;
+
+        // the normal points against the ray on the axis that was entered last
+        if (hit != null) {
+            if (axis == AXIS_X) {
+                hit.set(entry, ray.getDirectionX() > 0 ? -1 : 1, 0, 0);
+            } else if (axis == AXIS_Y) {
+                hit.set(entry, 0, ray.getDirectionY() > 0 ? -1 : 1, 0);
+            } else if (axis == AXIS_Z) {
+                hit.set(entry, 0, 0, ray.getDirectionZ() > 0 ? -1 : 1);
+            } else {
+                hit.set(entry, 0, 0, 0);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Sweeps one AABB described by its position and size against another, and finds the time of impact.
+     *
+     * @param ax      The position x of the moving AABB
+     * @param ay      The position y of the moving AABB
+     * @param az      The position z of the moving AABB
+     * @param aw      The width of the moving AABB
+     * @param ah      The height of the moving AABB
+     * @param ad      The depth of the moving AABB
+     * @param vx      The movement along x
+     * @param vy      The movement along y
+     * @param vz      The movement along z
+     * @param bx      The position x of the static AABB
+     * @param by      The position y of the static AABB
+     * @param bz      The position z of the static AABB
+     * @param bw      The width of the static AABB
+     * @param bh      The height of the static AABB
+     * @param bd      The depth of the static AABB
+     * @param maxTime The latest time of impact to accept
+     * @param hit     The result to store the time of impact and contact normal in
+     * @return True if they collide before maxTime, false if not. The result is only updated on a collision.
+     */
+    static boolean sweep(int ax, int ay, int az, int aw, int ah, int ad, double vx, double vy, double vz,
+                         int bx, int by, int bz, int bw, int bh, int bd, double maxTime, HitResult hit) {
+        // check if size is less then or equal to 0
+        if (bw <= 0 || bh <= 0 || bd <= 0 || aw <= 0 || ah <= 0 || ad <= 0) return false;
+
+        // find the time interval where the AABB's overlap on each axis
+        double entryX = AABB2D.getEntryTime(ax, aw, bx, bw, vx);
+        double entryY = AABB2D.getEntryTime(ay, ah, by, bh, vy);
+        double entryZ = AABB2D.getEntryTime(az, ad, bz, bd, vz);
+        double exitX = AABB2D.getExitTime(ax, aw, bx, bw, vx);
+        double exitY = AABB2D.getExitTime(ay, ah, by, bh, vy);
+        double exitZ = AABB2D.getExitTime(az, ad, bz, bd, vz);
+
+        // they collide if the intervals of every axis overlap
+        double entry = Math.max(entryX, Math.max(entryY, entryZ));
+        double exit = Math.min(exitX, Math.min(exitY, exitZ));
+        if (entry >= exit || exit <= 0 || entry > maxTime) return false;
+
+        // already overlapping at the start of the movement
+        if (entry < 0) {
+            hit.set(0, 0, 0, 0);
+            return true;
+        }
 
-        // return a new AABB representing the overlap.
-        return new AABB3D(thisMinX, thisMinY, thisMinZ, thisMaxX, thisMaxY, thisMaxZ);
+        // the normal points against the movement on the axis that was entered last
+        if (entryX >= entryY && entryX >= entryZ) {
+            hit.set(entry, vx > 0 ? -1 : 1, 0, 0);
+        } else if (entryY >= entryZ) {
+            hit.set(entry, 0, vy > 0 ? -1 : 1, 0);
+        } else {
+            hit.set(entry, 0, 0, vz > 0 ? -1 : 1);
+        }
+        return true;
     }
 
     /**
@@ -0,0 +1,377 @@
+package app.sagen.geometry;
+
+/**
+ * This class is a representation of a collidable box with single precision.
+ * It has the same methods as AABB3Dd, so code can switch between single and double precision without other changes.
+ * It has the intersection, overlap and area methods of AABB3D, but not the separating axis, sweep or raycast methods.
+ *
+ * @author Sagen
+ */
+public class AABB3Df {
+
+    /*
+     * The x location
+     */
+    private float x;
+
+    /*
+     * The y location
+     */
+    private float y;
+
+    /*
+     * The z location
+     */
+    private float z;
+
+    /*
+     * The width of the AABB
+     */
+    private float w;
+
+    /*
+     * The height of the AABB
+     */
+    private float h;
+
+    /*
+     * The depth of the AABB
+     */
+    private float d;
+
+    /**
+     * Creates a new instance of the class
+     *
+     * @param x The position x
+     * @param y The position y
+     * @param z The position z
+     * @param w The width
+     * @param h The height
+     * @param d The depth
+     */
+    public AABB3Df(float x, float y, float z, float w, float h, float d) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.w = w;
+        this.h = h;
+        this.d = d;
+    }
+
+    /**
+     * Creates a new instance of the class with the same size and position as an AABB3D
+     *
+     * @param box The AABB to copy
+     */
+    public AABB3Df(AABB3D box) {
+        this(box.getX(), box.getY(), box.getZ(), box.getWidth(), box.getHeight(), box.getDepth());
+    }
+
+    /**
+     * Updates the size and position with new values
+     *
+     * @param x The position x
+     * @param y The position y
+     * @param z The position z
+     * @param w The width
+     * @param h The height
+     * @param d The depth
+     */
+    public void setSizeAndPosition(float x, float y, float z, float w, float h, float d) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.w = w;
+        this.h = h;
+        this.d = d;
+    }
+
+    /**
+     * Updates the position
+     *
+     * @param x The position x
+     * @param y The position y
+     * @param z The position z
+     */
+    public void setPosition(float x, float y, float z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * Updates the size
+     *
+     * @param w The width
+     * @param h The height
+     * @param d The depth
+     */
+    public void setSize(float w, float h, float d) {
+        this.w = w;
+        this.h = h;
+        this.d = d;
+    }
+
+    /**
+     * Gets the position x
+     *
+     * @return The x
+     */
+    public float getX() {
+        return x;
+    }
+
+    /**
+     * Gets the position y
+     *
+     * @return The y
+     */
+    public float getY() {
+        return y;
+    }
+
+    /**
+     * Gets the position z
+     *
+     * @return The z
+     */
+    public float getZ() {
+        return z;
+    }
+
+    /**
+     * Gets the width
+     *
+     * @return The width
+     */
+    public float getWidth() {
+        return w;
+    }
+
+    /**
+     * Gets the height
+     *
+     * @return The height
+     */
+    public float getHeight() {
+        return h;
+    }
+
+    /**
+     * Gets the depth
+     *
+     * @return The depth
+     */
+    public float getDepth() {
+        return d;
+    }
+
+    /**
+     * Calculates if the tho AABB's are intersecting
+     *
+     * @param other The other AABB
+     * @return True if they intersect, false if not.
+     */
+    public boolean isIntersecting(AABB3Df other) {
+        // check if size is less then or equal to 0
+        if (other.w <= 0 || other.h <= 0 || other.d <= 0 || this.w <= 0 || this.h <= 0 || this.d <= 0) return false;
+
+        // test for intersection
+        return other.x + other.w > this.x &&
+                other.y + other.h > this.y &&
+                other.z + other.d > this.z &&
+                this.x + this.w > other.x &&
+                this.y + this.h > other.y &&
+                this.z + this.d > other.z;
+    }
+
+    /**
+     * Calculates the intersection between two AABB's
+     * If the AABB's do not overlap, the intersection will have a width, height and/or depth of 0.
+     *
+     * @param other The other AABB
+     * @return The intersection
+     */
+    public AABB3Df getIntersection(AABB3Df other) {
+        return getIntersection(other, new AABB3Df(0, 0, 0, 0, 0, 0));
+    }
+
+    /**
+     * Calculates the intersection between two AABB's and stores it in a destination AABB.
+     * No new objects are created, and the destination may be this AABB or the other AABB.
+     * If the AABB's do not overlap, the intersection will have a width, height and/or depth of 0.
+     *
+     * @param other The other AABB
+     * @param dest  The AABB to store the result in
+     * @return The destination AABB
+     */
+    public AABB3Df getIntersection(AABB3Df other, AABB3Df dest) {
+        // calculate the intersection by finding the biggest minimum and smallest maximum
+        float minX = Math.max(this.x, other.x);
+        float minY = Math.max(this.y, other.y);
+        float minZ = Math.max(this.z, other.z);
+        float maxX = Math.min(this.x + this.w, other.x + other.w);
+        float maxY = Math.min(this.y + this.h, other.y + other.h);
+        float maxZ = Math.min(this.z + this.d, other.z + other.d);
+
+        // store the overlap in the destination, a negative size means there is no overlap
+        dest.setSizeAndPosition(minX, minY, minZ,
+                Math.max(maxX - minX, 0), Math.max(maxY - minY, 0), Math.max(maxZ - minZ, 0));
+        return dest;
+    }
+
+    /**
+     * Calculates the length of the overlap between two AABB's along the x axis.
+     * A negative value is the size of the gap between them.
+     *
+     * @param other The other AABB
+     * @return The overlap along the x axis
+     */
+    public float getOverlapX(AABB3Df other) {
+        return Math.min(this.x + this.w, other.x + other.w) - Math.max(this.x, other.x);
+    }
+
+    /**
+     * Calculates the length of the overlap between two AABB's along the y axis.
+     * A negative value is the size of the gap between them.
+     *
+     * @param other The other AABB
+     * @return The overlap along the y axis
+     */
+    public float getOverlapY(AABB3Df other) {
+        return Math.min(this.y + this.h, other.y + other.h) - Math.max(this.y, other.y);
+    }
+
+    /**
+     * Calculates the length of the overlap between two AABB's along the z axis.
+     * A negative value is the size of the gap between them.
+     *
+     * @param other The other AABB
+     * @return The overlap along the z axis
+     */
+    public float getOverlapZ(AABB3Df other) {
+        return Math.min(this.z + this.d, other.z + other.d) - Math.max(this.z, other.z);
+    }
+
+    /**
+     * Calculates the volume of the intersection between two AABB's without creating a new AABB
+     *
+     * @param other The other AABB
+     * @return The volume of the intersection, or 0 if they do not overlap
+     */
+    public float getOverlapVolume(AABB3Df other) {
+        float overlapX = getOverlapX(other);
+        if (overlapX <= 0) return 0;
+
+        float overlapY = getOverlapY(other);
+        if (overlapY <= 0) return 0;
+
+        float overlapZ = getOverlapZ(other);
+        if (overlapZ <= 0) return 0;
+
+        return overlapX * overlapY * overlapZ;
+    }
+
+    /**
+     * Returns true if a point is inside this AABB.
+     * The minimum sides are inside and the maximum sides are outside, so a point is only inside one of two AABB's
+     * sharing a side.
+     *
+     * @param px The point x
+     * @param py The point y
+     * @param pz The point z
+     * @return True if the point is inside, false if not.
+     */
+    public boolean containsPoint(float px, float py, float pz) {
+        return px >= x && py >= y && pz >= z && px < x + w && py < y + h && pz < z + d;
+    }
+
+    /**
+     * Returns true if a point is inside this AABB.
+     *
+     * @param point The point
+     * @return True if the point is inside, false if not.
+     * @see #containsPoint(float, float, float)
+     */
+    public boolean containsPoint(Vector3D point) {
+        return containsPoint((float) point.getX(), (float) point.getY(), (float) point.getZ());
+    }
+
+    /**
+     * Grows this AABB so that it includes a point.
+     * The max edges are moved just past a point on or beyond them, since {@link #containsPoint} does not count the
+     * max edges as inside, so containsPoint returns true for the point afterwards.
+     *
+     * @param px The point x
+     * @param py The point y
+     * @param pz The point z
+     * @return This AABB instance
+     */
+    public AABB3Df expandToInclude(float px, float py, float pz) {
+        float minX = Math.min(x, px);
+        float minY = Math.min(y, py);
+        float minZ = Math.min(z, pz);
+        w = sizePast(minX, Math.max(x + w, px), px);
+        h = sizePast(minY, Math.max(y + h, py), py);
+        d = sizePast(minZ, Math.max(z + d, pz), pz);
+        x = minX;
+        y = minY;
+        z = minZ;
+        return this;
+    }
+
+    /**
+     * Grows this AABB so that it includes a point, as described in {@link #expandToInclude(float, float, float)}
+     *
+     * @param point The point
+     * @return This AABB instance
+     */
+    public AABB3Df expandToInclude(Vector3D point) {
+        return expandToInclude((float) point.getX(), (float) point.getY(), (float) point.getZ());
+    }
+
+    /**
+     * Grows this AABB so that it includes another AABB
+     *
+     * @param other The other AABB
+     * @return This AABB instance
+     */
+    public AABB3Df expandToInclude(AABB3Df other) {
+        float minX = Math.min(x, other.x);
+        float minY = Math.min(y, other.y);
+        float minZ = Math.min(z, other.z);
+        w = Math.max(x + w, other.x + other.w) - minX;
+        h = Math.max(y + h, other.y + other.h) - minY;
+        d = Math.max(z + d, other.z + other.d) - minZ;
+        x = minX;
+        y = minY;
+        z = minZ;
+        return this;
+    }
+
+    /**
+     * Calculates the size of a side from its min to its max, grown so that a point is below the max
+     *
+     * @param min The min of the side
+     * @param max The max of the side
+     * @param p   The point
+     * @return The size
+     */
+    private static float sizePast(float min, float max, float p) {
+        float size = max - min;
+        while (min + size <= p && size < Float.POSITIVE_INFINITY) {
+            size += Math.max(Math.ulp(size), Math.max(Math.ulp(min), Math.ulp(p)));
+        }
+        return size;
+    }
+
+    /**
+     * Creates a string representation of this class
+     *
+     * @return The string representation
+     */
+    @Override
+    public String toString() {
+        return "AABB3Df[x=" + x + ", y=" + y + ", z=" + z + ", width=" + w + ", height=" + h + ", depth=" + d + "]";
+    }
+}
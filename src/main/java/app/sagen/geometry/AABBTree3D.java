@@ -0,0 +1,528 @@
+package app.sagen.geometry;
+
+/**
+ * A static bounding volume hierarchy over a set of AABB3D's.
+ * Ray casts and overlap queries only visit the branches of the tree that can contain a result.
+ * Ray casts visit the nearest branch first, and stop as soon as no closer hit is possible.<br>
+ * The AABB's are copied when the tree is built, so the tree has to be rebuilt if they change.
+ * The tree is never changed after it is built, so it can be queried from several threads at once.
+ *
+ * @author Sagen
+ */
+public class AABBTree3D {
+
+    /*
+     * The max number of AABB's in a leaf
+     */
+    private static final int LEAF_SIZE = 4;
+
+    /*
+     * The stack of every thread, for the searches not given a stack
+     */
+    private static final ThreadLocal<TraversalStack> STACKS = ThreadLocal.withInitial(TraversalStack::new);
+
+    /*
+     * The index of each AABB in the array the tree was built from, in the order of the leaves
+     */
+    private final int[] items;
+
+    /*
+     * The position x of each AABB
+     */
+    private final int[] itemX;
+
+    /*
+     * The position y of each AABB
+     */
+    private final int[] itemY;
+
+    /*
+     * The position z of each AABB
+     */
+    private final int[] itemZ;
+
+    /*
+     * The width of each AABB
+     */
+    private final int[] itemW;
+
+    /*
+     * The height of each AABB
+     */
+    private final int[] itemH;
+
+    /*
+     * The depth of each AABB
+     */
+    private final int[] itemD;
+
+    /*
+     * The position x of the bounds of each node
+     */
+    private final int[] nodeX;
+
+    /*
+     * The position y of the bounds of each node
+     */
+    private final int[] nodeY;
+
+    /*
+     * The position z of the bounds of each node
+     */
+    private final int[] nodeZ;
+
+    /*
+     * The width of the bounds of each node
+     */
+    private final int[] nodeW;
+
+    /*
+     * The height of the bounds of each node
+     */
+    private final int[] nodeH;
+
+    /*
+     * The depth of the bounds of each node
+     */
+    private final int[] nodeD;
+
+    /*
+     * The index of the first child of each node. The second child is always the next node.
+     */
+    private final int[] nodeLeft;
+
+    /*
+     * The index of the first item in each leaf
+     */
+    private final int[] nodeStart;
+
+    /*
+     * The number of items in each leaf, or 0 if the node is not a leaf
+     */
+    private final int[] nodeCount;
+
+    /*
+     * The number of nodes in use
+     */
+    private int nodes;
+
+    /*
+     * The number of levels in the tree
+     */
+    private int depth;
+
+    /**
+     * Builds a new tree from an array of AABB's.
+     * AABB's with a width, height or depth less than or equal to 0 can never intersect anything, and are left out.
+     *
+     * @param boxes The AABB's
+     */
+    public AABBTree3D(AABB3D[] boxes) {
+        this(boxes, boxes.length);
+    }
+
+    /**
+     * Builds a new tree from the first AABB's in an array.
+     * AABB's with a width, height or depth less than or equal to 0 can never intersect anything, and are left out.
+     *
+     * @param boxes The AABB's
+     * @param count The number of AABB's to use
+     */
+    public AABBTree3D(AABB3D[] boxes, int count) {
+        // find the AABB's that can intersect anything
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (boxes[i].getWidth() > 0 && boxes[i].getHeight() > 0 && boxes[i].getDepth() > 0) size++;
+        }
+        items = new int[size];
+
+        // calculate the centers, doubled to stay in whole numbers
+        long[] centerX = new long[count];
+        long[] centerY = new long[count];
+        long[] centerZ = new long[count];
+        for (int i = 0, j = 0; i < count; i++) {
+            AABB3D box = boxes[i];
+            if (box.getWidth() <= 0 || box.getHeight() <= 0 || box.getDepth() <= 0) continue;
+            items[j++] = i;
+            centerX[i] = 2L * box.getX() + box.getWidth();
+            centerY[i] = 2L * box.getY() + box.getHeight();
+            centerZ[i] = 2L * box.getZ() + box.getDepth();
+        }
+
+        // every split creates two nodes, and no leaf is empty
+        int maxNodes = Math.max(1, 2 * size);
+        nodeX = new int[maxNodes];
+        nodeY = new int[maxNodes];
+        nodeZ = new int[maxNodes];
+        nodeW = new int[maxNodes];
+        nodeH = new int[maxNodes];
+        nodeD = new int[maxNodes];
+        nodeLeft = new int[maxNodes];
+        nodeStart = new int[maxNodes];
+        nodeCount = new int[maxNodes];
+
+        if (size > 0) {
+            nodes = 1;
+            build(boxes, centerX, centerY, centerZ, 0, 0, size, 1);
+        }
+
+        // copy the AABB's in the order of the leaves
+        itemX = new int[size];
+        itemY = new int[size];
+        itemZ = new int[size];
+        itemW = new int[size];
+        itemH = new int[size];
+        itemD = new int[size];
+        for (int i = 0; i < size; i++) {
+            AABB3D box = boxes[items[i]];
+            itemX[i] = box.getX();
+            itemY[i] = box.getY();
+            itemZ[i] = box.getZ();
+            itemW[i] = box.getWidth();
+            itemH[i] = box.getHeight();
+            itemD[i] = box.getDepth();
+        }
+    }
+
+    /**
+     * Builds a node and its children
+     *
+     * @param boxes   The AABB's
+     * @param centerX The doubled center x of each AABB
+     * @param centerY The doubled center y of each AABB
+     * @param centerZ The doubled center z of each AABB
+     * @param node    The node to build
+     * @param start   The first item in the node
+     * @param end     The item after the last item in the node
+     * @param level   The level of the node
+     */
+    private void build(AABB3D[] boxes, long[] centerX, long[] centerY, long[] centerZ,
+                       int node, int start, int end, int level) {
+        depth = Math.max(depth, level);
+
+        // calculate the bounds of the node and of the centers in it
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        long minCenterX = Long.MAX_VALUE, minCenterY = Long.MAX_VALUE, minCenterZ = Long.MAX_VALUE;
+        long maxCenterX = Long.MIN_VALUE, maxCenterY = Long.MIN_VALUE, maxCenterZ = Long.MIN_VALUE;
+        for (int i = start; i < end; i++) {
+            AABB3D box = boxes[items[i]];
+            minX = Math.min(minX, box.getX());
+            minY = Math.min(minY, box.getY());
+            minZ = Math.min(minZ, box.getZ());
+            maxX = Math.max(maxX, box.getX() + box.getWidth());
+            maxY = Math.max(maxY, box.getY() + box.getHeight());
+            maxZ = Math.max(maxZ, box.getZ() + box.getDepth());
+            minCenterX = Math.min(minCenterX, centerX[items[i]]);
+            minCenterY = Math.min(minCenterY, centerY[items[i]]);
+            minCenterZ = Math.min(minCenterZ, centerZ[items[i]]);
+            maxCenterX = Math.max(maxCenterX, centerX[items[i]]);
+            maxCenterY = Math.max(maxCenterY, centerY[items[i]]);
+            maxCenterZ = Math.max(maxCenterZ, centerZ[items[i]]);
+        }
+        nodeX[node] = minX;
+        nodeY[node] = minY;
+        nodeZ[node] = minZ;
+        nodeW[node] = maxX - minX;
+        nodeH[node] = maxY - minY;
+        nodeD[node] = maxZ - minZ;
+
+        // make a leaf if the node is small, or if the AABB's can not be split
+        long spreadX = maxCenterX - minCenterX;
+        long spreadY = maxCenterY - minCenterY;
+        long spreadZ = maxCenterZ - minCenterZ;
+        if (end - start <= LEAF_SIZE || (spreadX == 0 && spreadY == 0 && spreadZ == 0)) {
+            nodeStart[node] = start;
+            nodeCount[node] = end - start;
+            return;
+        }
+
+        // split at the median center along the longest axis
+        long[] centers;
+        if (spreadX >= spreadY && spreadX >= spreadZ) {
+            centers = centerX;
+        } else if (spreadY >= spreadZ) {
+            centers = centerY;
+        } else {
+            centers = centerZ;
+        }
+        int mid = (start + end) >>> 1;
+        select(centers, start, end - 1, mid);
+
+        int left = nodes;
+        nodes += 2;
+        nodeLeft[node] = left;
+        build(boxes, centerX, centerY, centerZ, left, start, mid, level + 1);
+        build(boxes, centerX, centerY, centerZ, left + 1, mid, end, level + 1);
+    }
+
+    /**
+     * Reorders the items so that the item at index k has the k-th smallest center,
+     * with smaller centers before it and larger centers after it.
+     *
+     * @param centers The centers to order by
+     * @param left    The first item
+     * @param right   The last item
+     * @param k       The index to place
+     */
+    private void select(long[] centers, int left, int right, int k) {
+        while (right > left) {
+            long pivot = centers[items[(left + right) >>> 1]];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (centers[items[i]] < pivot) i++;
+                while (centers[items[j]] > pivot) j--;
+                if (i <= j) {
+                    int swap = items[i];
+                    items[i++] = items[j];
+                    items[j--] = swap;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of AABB's in the tree
+     *
+     * @return The number of AABB's
+     */
+    public int size() {
+        return items.length;
+    }
+
+    /**
+     * Casts a ray against the bounds of a node
+     *
+     * @param node    The node
+     * @param ray     The ray
+     * @param maxTime The latest time along the ray to accept
+     * @return The time the ray enters the node, or -1 if it misses
+     */
+    private double raycastNode(int node, Ray3D ray, double maxTime) {
+        return AABB3D.raycast(nodeX[node], nodeY[node], nodeZ[node], nodeW[node], nodeH[node], nodeD[node], ray, maxTime, null);
+    }
+
+    /**
+     * Finds the first AABB hit by a ray or line segment.
+     * A stack kept for the calling thread is used, so the search does not create arrays once the stack of the thread is large enough.
+     *
+     * @param ray The ray
+     * @param hit The result to store the time, normal and index in
+     * @return The index of the AABB hit, or -1 if none was hit
+     */
+    public int raycastFirst(Ray3D ray, HitResult hit) {
+        return raycastFirst(ray, hit, STACKS.get());
+    }
+
+    /**
+     * Finds the first AABB hit by a ray or line segment.
+     *
+     * @param ray       The ray
+     * @param hit       The result to store the time, normal and index in
+     * @param traversal The stack to use, so the search does not create any arrays
+     * @return The index of the AABB hit, or -1 if none was hit
+     */
+    public int raycastFirst(Ray3D ray, HitResult hit, TraversalStack traversal) {
+        hit.reset();
+        if (nodes == 0) return -1;
+
+        double rootTime = raycastNode(0, ray, ray.getLength());
+        if (rootTime < 0) return -1;
+
+        // the nodes left to visit, and the time the ray enters them
+        traversal.ensureCapacity(depth + 1);
+        int[] stack = traversal.nodes;
+        double[] stackTime = traversal.times;
+        stack[0] = 0;
+        stackTime[0] = rootTime;
+        int top = 1;
+
+        int first = -1;
+        double best = ray.getLength();
+        while (top > 0) {
+            int node = stack[--top];
+
+            // skip the node if a closer hit was found after it was added
+            if (stackTime[top] > best) continue;
+
+            if (nodeCount[node] > 0) {
+                // test every AABB in the leaf
+                for (int i = nodeStart[node], end = i + nodeCount[node]; i < end; i++) {
+                    double time = AABB3D.raycast(itemX[i], itemY[i], itemZ[i], itemW[i], itemH[i], itemD[i], ray, best, null);
+                    if (time >= 0 && (first < 0 || time < best)) {
+                        first = i;
+                        best = time;
+                    }
+                }
+                continue;
+            }
+
+            int left = nodeLeft[node];
+            int right = left + 1;
+            double leftTime = raycastNode(left, ray, best);
+            double rightTime = raycastNode(right, ray, best);
+
+            // add the farthest child first, so the nearest child is visited first
+            if (leftTime >= 0 && rightTime >= 0 && leftTime > rightTime) {
+                stack[top] = left;
+                stackTime[top++] = leftTime;
+                stack[top] = right;
+                stackTime[top++] = rightTime;
+            } else {
+                if (rightTime >= 0) {
+                    stack[top] = right;
+                    stackTime[top++] = rightTime;
+                }
+                if (leftTime >= 0) {
+                    stack[top] = left;
+                    stackTime[top++] = leftTime;
+                }
+            }
+        }
+
+        if (first < 0) return -1;
+
+        // calculate the normal for the first hit only
+        AABB3D.raycast(itemX[first], itemY[first], itemZ[first], itemW[first], itemH[first], itemD[first], ray, best, hit);
+        hit.setIndex(items[first]);
+        return items[first];
+    }
+
+    /**
+     * Finds every AABB hit by a ray or line segment.
+     * The indices are added to the list roughly in the order the ray hits them, but they are not sorted.
+     * A stack kept for the calling thread is used, so the search does not create arrays once the stack of the thread is large enough.
+     *
+     * @param ray The ray
+     * @param out The list to add the indices of the AABB's hit to
+     * @return The number of AABB's hit
+     */
+    public int raycastAll(Ray3D ray, IntList out) {
+        return raycastAll(ray, out, STACKS.get());
+    }
+
+    /**
+     * Finds every AABB hit by a ray or line segment.
+     * The indices are added to the list roughly in the order the ray hits them, but they are not sorted.
+     *
+     * @param ray       The ray
+     * @param out       The list to add the indices of the AABB's hit to
+     * @param traversal The stack to use, so the search does not create any arrays
+     * @return The number of AABB's hit
+     */
+    public int raycastAll(Ray3D ray, IntList out, TraversalStack traversal) {
+        double length = ray.getLength();
+        if (nodes == 0 || raycastNode(0, ray, length) < 0) {
+            return 0;
+        }
+
+        // the nodes left to visit
+        traversal.ensureCapacity(depth + 1);
+        int[] stack = traversal.nodes;
+        stack[0] = 0;
+        int top = 1;
+
+        int found = 0;
+        while (top > 0) {
+            int node = stack[--top];
+
+            if (nodeCount[node] > 0) {
+                // test every AABB in the leaf
+                for (int i = nodeStart[node], end = i + nodeCount[node]; i < end; i++) {
+                    if (AABB3D.raycast(itemX[i], itemY[i], itemZ[i], itemW[i], itemH[i], itemD[i], ray, length, null) >= 0) {
+                        out.add(items[i]);
+                        found++;
+                    }
+                }
+                continue;
+            }
+
+            int left = nodeLeft[node];
+            int right = left + 1;
+            double leftTime = raycastNode(left, ray, length);
+            double rightTime = raycastNode(right, ray, length);
+
+            // add the farthest child first, so the nearest child is visited first
+            if (leftTime >= 0 && rightTime >= 0 && leftTime > rightTime) {
+                stack[top++] = left;
+                stack[top++] = right;
+            } else {
+                if (rightTime >= 0) stack[top++] = right;
+                if (leftTime >= 0) stack[top++] = left;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds every AABB intersecting another AABB
+     * A stack kept for the calling thread is used, so the search does not create arrays once the stack of the thread is large enough.
+     *
+     * @param box The AABB to test against
+     * @param out The list to add the indices of the intersecting AABB's to
+     * @return The number of intersecting AABB's
+     */
+    public int query(AABB3D box, IntList out) {
+        return query(box, out, STACKS.get());
+    }
+
+    /**
+     * Finds every AABB intersecting another AABB
+     *
+     * @param box       The AABB to test against
+     * @param out       The list to add the indices of the intersecting AABB's to
+     * @param traversal The stack to use, so the search does not create any arrays
+     * @return The number of intersecting AABB's
+     */
+    public int query(AABB3D box, IntList out, TraversalStack traversal) {
+        int x = box.getX();
+        int y = box.getY();
+        int z = box.getZ();
+        int w = box.getWidth();
+        int h = box.getHeight();
+        int d = box.getDepth();
+        if (nodes == 0 || !AABB3D.isIntersecting(nodeX[0], nodeY[0], nodeZ[0], nodeW[0], nodeH[0], nodeD[0], x, y, z, w, h, d)) {
+            return 0;
+        }
+
+        // the nodes left to visit
+        traversal.ensureCapacity(depth + 1);
+        int[] stack = traversal.nodes;
+        stack[0] = 0;
+        int top = 1;
+
+        int found = 0;
+        while (top > 0) {
+            int node = stack[--top];
+
+            if (nodeCount[node] > 0) {
+                // test every AABB in the leaf
+                for (int i = nodeStart[node], end = i + nodeCount[node]; i < end; i++) {
+                    if (AABB3D.isIntersecting(itemX[i], itemY[i], itemZ[i], itemW[i], itemH[i], itemD[i], x, y, z, w, h, d)) {
+                        out.add(items[i]);
+                        found++;
+                    }
+                }
+                continue;
+            }
+
+            int left = nodeLeft[node];
+            int right = left + 1;
+            if (AABB3D.isIntersecting(nodeX[right], nodeY[right], nodeZ[right], nodeW[right], nodeH[right], nodeD[right], x, y, z, w, h, d)) {
+                stack[top++] = right;
+            }
+            if (AABB3D.isIntersecting(nodeX[left], nodeY[left], nodeZ[left], nodeW[left], nodeH[left], nodeD[left], x, y, z, w, h, d)) {
+                stack[top++] = left;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,409 @@
+package app.sagen.geometry.AStar;
+
+import java.util.Arrays;
+
+/**
+ * The base of a resumable A* search. The search can be run to the end at once, or a few node expansions
+ * at a time with {@link #step(int, long)}, so a long search can be spread over several game ticks.<br>
+ * Nodes are identified by their coordinates packed into a long, and are stored in primitive arrays that only
+ * grow with the number of nodes visited, not with the size of the map. Subclasses decide how coordinates
+ * are packed, which neighbours a node has and how the distance to the target is estimated.<br>
+ * See https://en.wikipedia.org/wiki/A*_search_algorithm
+ *
+ * @author Sagen
+ */
+public abstract class AbstractPathSearch {
+
+    /**
+     * The slot of a node that does not exist
+     */
+    protected static final int NONE = -1;
+
+    /*
+     * The number of expansions between every time the clock is checked
+     */
+    private static final int CLOCK_INTERVAL = 8;
+
+    /*
+     * The packed coordinates of every node
+     */
+    private long[] keys = new long[64];
+
+    /*
+     * The cost from the source to every node
+     */
+    private float[] g = new float[64];
+
+    /*
+     * The estimated cost from every node to the target
+     */
+    private float[] h = new float[64];
+
+    /*
+     * The slot of the parent of every node
+     */
+    private int[] parents = new int[64];
+
+    /*
+     * The number of parents of every node
+     */
+    private int[] depths = new int[64];
+
+    /*
+     * The slot of every node by its packed coordinates
+     */
+    private final LongIntHashMap slots = new LongIntHashMap(64);
+
+    /*
+     * The open set as described on wikipedia
+     */
+    private final NodeHeap open = new NodeHeap();
+
+    /*
+     * The number of nodes visited
+     */
+    private int nodes;
+
+    /*
+     * The packed coordinates of the target
+     */
+    private long target;
+
+    /*
+     * The slot of the node the path was found to
+     */
+    private int targetSlot = NONE;
+
+    /*
+     * The max depth of a node before the search stops
+     */
+    private int maxSearchDistance;
+
+    /*
+     * The depth of the deepest node visited
+     */
+    private int maxDepth;
+
+    /*
+     * The slot of the node closest to the target
+     */
+    private int closest = NONE;
+
+    /*
+     * The number of nodes expanded
+     */
+    private int expanded;
+
+    /*
+     * The state of the search
+     */
+    private SearchStatus status = SearchStatus.NOT_FOUND;
+
+    /*
+     * The listener receiving events, or null
+     */
+    private SearchListener listener;
+
+    /**
+     * Sets the listener receiving events from this search
+     *
+     * @param listener The listener, or null to remove it
+     */
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Clears the search and starts a new one. The arrays are kept, so a search can be reused without creating new arrays.
+     *
+     * @param source            The packed coordinates of the source
+     * @param target            The packed coordinates of the target
+     * @param maxSearchDistance The max distance to search for a path
+     */
+    protected final void begin(long source, long target, int maxSearchDistance) {
+        slots.clear();
+        open.clear();
+        nodes = 0;
+        maxDepth = 0;
+        expanded = 0;
+        targetSlot = NONE;
+        this.target = target;
+        this.maxSearchDistance = maxSearchDistance;
+
+        // add the source node to the open set
+        int slot = addNode(source, 0, heuristic(source), NONE, 0);
+        open.add(slot, h[slot], h[slot]);
+        closest = slot;
+        status = SearchStatus.SEARCHING;
+    }
+
+    /**
+     * Clears the search and marks it as finished without a path, for searches that can never find a path
+     */
+    protected final void fail() {
+        slots.clear();
+        open.clear();
+        nodes = 0;
+        expanded = 0;
+        closest = NONE;
+        targetSlot = NONE;
+        finish(SearchStatus.NOT_FOUND);
+    }
+
+    /**
+     * Runs the search until it finishes
+     *
+     * @return The status of the search
+     */
+    public final SearchStatus run() {
+        return step(Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Continues the search for a number of node expansions
+     *
+     * @param maxExpansions The max number of nodes to expand
+     * @return The status of the search
+     */
+    public final SearchStatus step(int maxExpansions) {
+        return step(maxExpansions, Long.MAX_VALUE);
+    }
+
+    /**
+     * Continues the search for a number of node expansions, or until some time has passed
+     *
+     * @param maxExpansions The max number of nodes to expand
+     * @param maxNanos      The max time to search for, in nanoseconds
+     * @return The status of the search
+     */
+    public final SearchStatus step(int maxExpansions, long maxNanos) {
+        long start = maxNanos == Long.MAX_VALUE ? 0 : System.nanoTime();
+        int count = 0;
+        while (status == SearchStatus.SEARCHING && count < maxExpansions) {
+            // stop at the max depth, or when there are no more nodes to visit
+            if (maxDepth >= maxSearchDistance || open.isEmpty()) {
+                targetSlot = slots.get(target);
+                finish(targetSlot != NONE ? SearchStatus.FOUND : SearchStatus.NOT_FOUND);
+                break;
+            }
+
+            // found our target
+            int current = open.peek();
+            if (isTarget(keys[current])) {
+                targetSlot = current;
+                finish(SearchStatus.FOUND);
+                break;
+            }
+
+            // move the node to the closed set and visit its neighbours
+            open.poll();
+            expanded++;
+            if (listener != null) listener.nodeExpanded(this, keys[current], g[current], h[current]);
+            expand(keys[current], current);
+
+            // check the clock once in a while, it is too slow to check on every expansion
+            if (++count % CLOCK_INTERVAL == 0 && maxNanos != Long.MAX_VALUE && System.nanoTime() - start >= maxNanos) {
+                break;
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Visits every neighbour of a node by calling {@link #relax(int, long, float)} for each of them
+     *
+     * @param node The packed coordinates of the node
+     * @param slot The slot of the node
+     */
+    protected abstract void expand(long node, int slot);
+
+    /**
+     * Estimates the cost from a node to the target. The estimate should never be larger than the real cost.
+     *
+     * @param node The packed coordinates of the node
+     * @return The estimated cost
+     */
+    protected abstract float heuristic(long node);
+
+    /**
+     * Returns true if a node is the end of the path, false if not.
+     * By default only the target is, but a subclass can end the search at other nodes as well.
+     *
+     * @param node The packed coordinates of the node
+     * @return True if the search should stop at the node
+     */
+    protected boolean isTarget(long node) {
+        return node == target;
+    }
+
+    /**
+     * Visits a neighbour of a node, and adds it to the open set if this is the cheapest way to it found so far
+     *
+     * @param from The slot of the node being expanded
+     * @param node The packed coordinates of the neighbour
+     * @param cost The cost of moving from the node to the neighbour
+     */
+    protected final void relax(int from, long node, float cost) {
+        float cost2 = g[from] + cost;
+        int depth = depths[from] + 1;
+        int slot = slots.get(node);
+
+        if (slot == NONE) {
+            // first time the node is visited
+            slot = addNode(node, cost2, heuristic(node), from, depth);
+            if (h[slot] < h[closest] || (h[slot] == h[closest] && cost2 < g[closest])) closest = slot;
+        } else if (cost2 < g[slot]) {
+            // found a cheaper way to a node, add it to the open set again
+            g[slot] = cost2;
+            parents[slot] = from;
+            depths[slot] = depth;
+        } else {
+            return;
+        }
+
+        maxDepth = Math.max(maxDepth, depth);
+        open.add(slot, cost2 + h[slot], h[slot]);
+        if (listener != null) listener.nodeOpened(this, node, cost2, h[slot]);
+    }
+
+    /**
+     * Stores a new node
+     *
+     * @param node   The packed coordinates
+     * @param cost   The cost from the source
+     * @param h      The estimated cost to the target
+     * @param parent The slot of the parent
+     * @param depth  The number of parents
+     * @return The slot of the node
+     */
+    private int addNode(long node, float cost, float h, int parent, int depth) {
+        if (nodes == keys.length) {
+            int capacity = nodes * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            this.g = Arrays.copyOf(this.g, capacity);
+            this.h = Arrays.copyOf(this.h, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            depths = Arrays.copyOf(depths, capacity);
+        }
+        int slot = nodes++;
+        keys[slot] = node;
+        this.g[slot] = cost;
+        this.h[slot] = h;
+        parents[slot] = parent;
+        depths[slot] = depth;
+        slots.put(node, slot);
+        return slot;
+    }
+
+    /**
+     * Marks the search as finished
+     *
+     * @param status The final status
+     */
+    private void finish(SearchStatus status) {
+        this.status = status;
+        if (listener != null) listener.searchFinished(this, status);
+    }
+
+    /**
+     * Gets the status of the search
+     *
+     * @return The status
+     */
+    public SearchStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns true if the search has finished, false if it can be continued.
+     *
+     * @return True if the search is done
+     */
+    public boolean isDone() {
+        return status != SearchStatus.SEARCHING;
+    }
+
+    /**
+     * Gets the number of nodes expanded so far. Useful for reporting progress.
+     *
+     * @return The number of expanded nodes
+     */
+    public int getExpandedCount() {
+        return expanded;
+    }
+
+    /**
+     * Gets the number of nodes in the open set
+     *
+     * @return The size of the open set
+     */
+    public int getOpenCount() {
+        return open.size();
+    }
+
+    /**
+     * Gets the number of nodes visited so far
+     *
+     * @return The number of visited nodes
+     */
+    public int getVisitedCount() {
+        return nodes;
+    }
+
+    /**
+     * Gets the packed coordinates of the target
+     *
+     * @return The target
+     */
+    protected long getTarget() {
+        return target;
+    }
+
+    /**
+     * Gets the slot of the node the path was found to
+     *
+     * @return The slot, or NONE if no path has been found
+     */
+    protected int getTargetSlot() {
+        return targetSlot;
+    }
+
+    /**
+     * Gets the slot of the visited node with the smallest estimated cost to the target
+     *
+     * @return The slot, or NONE if no node has been visited
+     */
+    protected int getClosestSlot() {
+        return closest;
+    }
+
+    /**
+     * Gets the packed coordinates of a node
+     *
+     * @param slot The slot of the node
+     * @return The packed coordinates
+     */
+    protected long getNode(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * Gets the slot of the parent of a node
+     *
+     * @param slot The slot of the node
+     * @return The slot of the parent, or NONE for the source
+     */
+    protected int getParent(int slot) {
+        return parents[slot];
+    }
+
+    /**
+     * Gets the cost from the source to a node
+     *
+     * @param slot The slot of the node
+     * @return The cost
+     */
+    protected float getCost(int slot) {
+        return g[slot];
+    }
+}
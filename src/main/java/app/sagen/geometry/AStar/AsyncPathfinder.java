@@ -0,0 +1,421 @@
+package app.sagen.geometry.AStar;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Finds paths on background threads, and returns them as CompletableFutures.<br>
+ * Requests for the same path by the same entity, while an earlier request for it is still waiting or running,
+ * are merged into the earlier request, so the path is only searched once. Every caller still gets its own copy
+ * of the path. Entities that move the same way can use the same entity instance, for example the profile of a
+ * {@link CostGrid}, to have their requests merged as well.<br>
+ * Requests with a higher priority are searched first. When the queue is full, the request with the lowest priority
+ * is shed, and its future fails with a RejectedExecutionException. While the queue is at least half full, searches
+ * are degraded: they stop after a limited number of node expansions, and return the path to the tile closest to
+ * the target instead of the whole path, marked as partial in the {@link PathResult}. Requests merged into a degraded
+ * request get the same partial path. This keeps the time a request waits bounded when more paths are requested
+ * than the threads can search.<br>
+ * The map is read from several threads at once, so it must not be changed while requests are running.
+ *
+ * @author Sagen
+ */
+public class AsyncPathfinder implements AutoCloseable {
+
+    /*
+     * Guards every field below that is not final
+     */
+    private final Object lock = new Object();
+
+    /*
+     * The requests waiting to be searched, the highest priority first
+     */
+    private final PriorityQueue<Request> queue = new PriorityQueue<>();
+
+    /*
+     * Every request waiting or running, by itself, so equal requests can find it
+     */
+    private final HashMap<Request, Request> inFlight = new HashMap<>();
+
+    /*
+     * The TileMap used
+     */
+    private final TileMap map;
+
+    /*
+     * The threads searching for paths
+     */
+    private final Thread[] workers;
+
+    /*
+     * The max number of requests waiting
+     */
+    private final int maxQueued;
+
+    /*
+     * The max number of node expansions of a degraded search
+     */
+    private volatile int degradedExpansions = 1000;
+
+    /*
+     * The order of the next request, so requests with the same priority are searched in order
+     */
+    private long sequence;
+
+    /*
+     * The number of requests merged into an earlier request
+     */
+    private long mergedCount;
+
+    /*
+     * The number of requests shed because the queue was full
+     */
+    private long shedCount;
+
+    /*
+     * The number of searches stopped early because they were degraded
+     */
+    private long degradedCount;
+
+    /*
+     * True after close has been called
+     */
+    private boolean closed;
+
+    /**
+     * Creates a new instance of the class, and starts its threads
+     *
+     * @param map       The TileMap to use
+     * @param threads   The number of threads searching for paths
+     * @param maxQueued The max number of requests waiting
+     */
+    public AsyncPathfinder(TileMap map, int threads, int maxQueued) {
+        if (threads <= 0) throw new IllegalArgumentException("threads must be positive");
+        if (maxQueued <= 0) throw new IllegalArgumentException("maxQueued must be positive");
+        this.map = map;
+        this.maxQueued = maxQueued;
+        this.workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(this::work, "pathfinder-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Sets the max number of node expansions of a search while the queue is at least half full
+     *
+     * @param degradedExpansions The max number of node expansions, 1000 by default
+     */
+    public void setDegradedExpansions(int degradedExpansions) {
+        if (degradedExpansions <= 0) throw new IllegalArgumentException("degradedExpansions must be positive");
+        this.degradedExpansions = degradedExpansions;
+    }
+
+    /**
+     * Requests a path between two entities
+     *
+     * @param entity            The entity source
+     * @param toEntity          The entity destination
+     * @param maxSearchDistance The max distance to search for a path
+     * @param priority          The priority of the request, higher is searched first
+     * @return The path, as described in {@link #findPath(TileEntity, int, int, int, int, int, int)}
+     */
+    public CompletableFuture<PathResult> findPath(TileEntity entity, TileEntity toEntity, int maxSearchDistance, int priority) {
+        return findPath(entity, entity.getTileX(), entity.getTileY(), toEntity.getTileX(), toEntity.getTileY(), maxSearchDistance, priority);
+    }
+
+    /**
+     * Requests a path between two positions for an entity.
+     * The future completes with the path as returned by {@link Pathfinder#findPath(TileEntity, int, int, int, int, int)},
+     * or with a partial path if the search was degraded and stopped before it reached the target. It fails with a RejectedExecutionException if the request
+     * was shed or the pathfinder is closed.
+     *
+     * @param entity            The entity to find a path for
+     * @param sx                The source x
+     * @param sy                The source y
+     * @param tx                The target x
+     * @param ty                The target y
+     * @param maxSearchDistance The max distance to search for a path
+     * @param priority          The priority of the request, higher is searched first
+     * @return The path
+     */
+    public CompletableFuture<PathResult> findPath(TileEntity entity, int sx, int sy, int tx, int ty, int maxSearchDistance, int priority) {
+        // The target node has no parent when it is the source, so there is no path to it
+        if (sx == tx && sy == ty) {
+            return CompletableFuture.completedFuture(new PathResult(null, false));
+        }
+
+        Request request = new Request(entity, sx, sy, tx, ty, maxSearchDistance, priority);
+        Request shed = null;
+        synchronized (lock) {
+            if (closed) return rejected("The pathfinder is closed");
+
+            Request existing = inFlight.get(request);
+            if (existing != null) {
+                // search once, and move the request forward if the new one is more important
+                mergedCount++;
+                if (priority > existing.priority && queue.remove(existing)) {
+                    existing.priority = priority;
+                    queue.add(existing);
+                }
+                return existing.result.thenApply(PathResult::copy);
+            }
+
+            if (queue.size() >= maxQueued) {
+                // shed the least important request, which may be the new one
+                Request lowest = null;
+                for (Request queued : queue) {
+                    if (lowest == null || queued.compareTo(lowest) > 0) lowest = queued;
+                }
+                shedCount++;
+                if (lowest.priority >= priority) return rejected("The path queue is full");
+                queue.remove(lowest);
+                inFlight.remove(lowest);
+                shed = lowest;
+            }
+
+            request.sequence = sequence++;
+            queue.add(request);
+            inFlight.put(request, request);
+            lock.notify();
+        }
+
+        if (shed != null) shed.result.completeExceptionally(new RejectedExecutionException("The path request was shed"));
+        return request.result.thenApply(PathResult::copy);
+    }
+
+    /**
+     * Searches for the requested paths until the pathfinder is closed
+     */
+    private void work() {
+        PathSearch search = map instanceof CostGrid ? new PathSearch((CostGrid) map) : new PathSearch(map);
+        while (true) {
+            Request request;
+            boolean degrade;
+            synchronized (lock) {
+                while (queue.isEmpty() && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // the threads are only stopped by close, requests may be waiting for this thread
+                    }
+                }
+                if (closed) return;
+                request = queue.poll();
+                degrade = queue.size() * 2 >= maxQueued;
+            }
+
+            // the request is always completed, so merged requests never wait for a future that is never completed
+            PathResult result = null;
+            Throwable error = null;
+            try {
+                search.start(request.entity, request.sx, request.sy, request.tx, request.ty, request.maxSearchDistance);
+                if (degrade) {
+                    search.step(degradedExpansions);
+                    result = search.isDone()
+                            ? new PathResult(search.getPath(), false)
+                            : new PathResult(search.getPartialPath(), true);
+                } else {
+                    search.run();
+                    result = new PathResult(search.getPath(), false);
+                }
+            } catch (Throwable e) {
+                error = e;
+            } finally {
+                synchronized (lock) {
+                    inFlight.remove(request);
+                    if (result != null && result.isPartial()) degradedCount++;
+                }
+                if (error != null) {
+                    request.result.completeExceptionally(error);
+                } else {
+                    request.result.complete(result);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of requests waiting to be searched
+     *
+     * @return The number of waiting requests
+     */
+    public int getQueuedCount() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Gets the number of requests merged into an earlier request so far
+     *
+     * @return The number of merged requests
+     */
+    public long getMergedCount() {
+        synchronized (lock) {
+            return mergedCount;
+        }
+    }
+
+    /**
+     * Gets the number of requests shed because the queue was full so far
+     *
+     * @return The number of shed requests
+     */
+    public long getShedCount() {
+        synchronized (lock) {
+            return shedCount;
+        }
+    }
+
+    /**
+     * Gets the number of searches stopped early because the queue was at least half full so far
+     *
+     * @return The number of searches stopped early
+     */
+    public long getDegradedCount() {
+        synchronized (lock) {
+            return degradedCount;
+        }
+    }
+
+    /**
+     * Stops the threads. Searches already running are finished, and requests still waiting fail with a
+     * RejectedExecutionException.
+     */
+    @Override
+    public void close() {
+        ArrayList<Request> waiting;
+        synchronized (lock) {
+            if (closed) return;
+            closed = true;
+            waiting = new ArrayList<>(queue);
+            queue.clear();
+            for (Request request : waiting) {
+                inFlight.remove(request);
+            }
+            lock.notifyAll();
+        }
+        for (Request request : waiting) {
+            request.result.completeExceptionally(new RejectedExecutionException("The pathfinder is closed"));
+        }
+    }
+
+    /**
+     * Creates a failed future
+     *
+     * @param message The reason
+     * @return The future
+     */
+    private static CompletableFuture<PathResult> rejected(String message) {
+        CompletableFuture<PathResult> future = new CompletableFuture<>();
+        future.completeExceptionally(new RejectedExecutionException(message));
+        return future;
+    }
+
+    /**
+     * A requested path. Two requests are equal if they are for the same path by the same entity.
+     */
+    private static final class Request implements Comparable<Request> {
+
+        /*
+         * The entity to find a path for
+         */
+        final TileEntity entity;
+
+        /*
+         * The source x
+         */
+        final int sx;
+
+        /*
+         * The source y
+         */
+        final int sy;
+
+        /*
+         * The target x
+         */
+        final int tx;
+
+        /*
+         * The target y
+         */
+        final int ty;
+
+        /*
+         * The max distance to search for a path
+         */
+        final int maxSearchDistance;
+
+        /*
+         * The path, shared by every merged request
+         */
+        final CompletableFuture<PathResult> result = new CompletableFuture<>();
+
+        /*
+         * The priority, higher is searched first
+         */
+        int priority;
+
+        /*
+         * The order the request was queued in
+         */
+        long sequence;
+
+        /**
+         * Creates a new request
+         *
+         * @param entity            The entity to find a path for
+         * @param sx                The source x
+         * @param sy                The source y
+         * @param tx                The target x
+         * @param ty                The target y
+         * @param maxSearchDistance The max distance to search for a path
+         * @param priority          The priority, higher is searched first
+         */
+        Request(TileEntity entity, int sx, int sy, int tx, int ty, int maxSearchDistance, int priority) {
+            this.entity = entity;
+            this.sx = sx;
+            this.sy = sy;
+            this.tx = tx;
+            this.ty = ty;
+            this.maxSearchDistance = maxSearchDistance;
+            this.priority = priority;
+        }
+
+        /**
+         * Orders the requests by the highest priority first, then by the order they were queued
+         *
+         * @param other The other request
+         * @return A negative number if this request is searched first
+         */
+        @Override
+        public int compareTo(Request other) {
+            if (priority != other.priority) return priority > other.priority ? -1 : 1;
+            return Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Request)) return false;
+            Request other = (Request) o;
+            return entity == other.entity && sx == other.sx && sy == other.sy && tx == other.tx && ty == other.ty
+                    && maxSearchDistance == other.maxSearchDistance;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(entity);
+            result = 31 * result + sx;
+            result = 31 * result + sy;
+            result = 31 * result + tx;
+            result = 31 * result + ty;
+            return 31 * result + maxSearchDistance;
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package app.sagen.geometry.AStar;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A TileMap stored in a binary file, split into square chunks that are memory mapped the first time they are used.
+ * Opening a map only reads the header, so a very large map opens at once, and only the chunks a search visits are
+ * ever paged in by the operating system.<br>
+ * <br>
+ * Chunks are not mapped one at a time. The file is mapped in regions of up to {@value #REGION_BYTES} bytes, each
+ * holding many chunks, and a region is mapped the first time one of its chunks is used. Every mapping counts towards
+ * the limit of mappings of the process, about 65530 on Linux (vm.max_map_count), shared with the rest of the JVM.
+ * With regions, a map file uses one mapping per GiB, so even a map of 100 000 x 100 000 tiles only uses a few
+ * mappings. Regions are never unmapped while the map is open, so the address space used grows up to the size of
+ * the file, which only matters on 32 bit JVMs.<br>
+ * <br>
+ * The file starts with a header of {@value #HEADER_SIZE} bytes, followed by every chunk in row order.
+ * Every chunk has the same size, also on the right and bottom edges of the map, so the offset of a chunk can be
+ * calculated from its index. A chunk stores one traversable bit per tile, followed by one cost byte per tile.
+ * The cost of a tile is the cost byte times the cost scale of the map.<br>
+ * <br>
+ * The entity is ignored, every entity sees the same map. The cost of a move is the cost of the tile moved to.
+ * Reading the map from several threads is safe, writing to it while it is read is not.
+ *
+ * @author Sagen
+ */
+public class ChunkedTileMap implements TileMap, Closeable {
+
+    /**
+     * The size of the header in bytes
+     */
+    public static final int HEADER_SIZE = 32;
+
+    /*
+     * The first four bytes of every map file, "TMAP"
+     */
+    private static final int MAGIC = 0x544d4150;
+
+    /*
+     * The version of the file format
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The max number of bytes mapped at once
+     */
+    public static final int REGION_BYTES = 1 << 30;
+
+    /*
+     * The open file
+     */
+    private final FileChannel channel;
+
+    /*
+     * The mode used to map regions
+     */
+    private final FileChannel.MapMode mode;
+
+    /*
+     * The width of the map in tiles
+     */
+    private final int width;
+
+    /*
+     * The height of the map in tiles
+     */
+    private final int height;
+
+    /*
+     * The width and height of a chunk in tiles
+     */
+    private final int chunkSize;
+
+    /*
+     * The number of chunks along the x axis
+     */
+    private final int chunksX;
+
+    /*
+     * The number of bytes of traversable bits in a chunk
+     */
+    private final int bitBytes;
+
+    /*
+     * The number of bytes in a chunk
+     */
+    private final int chunkBytes;
+
+    /*
+     * The cost of one step of the cost byte
+     */
+    private final float costScale;
+
+    /*
+     * The cost of every value of the cost byte
+     */
+    private final float[] costs = new float[256];
+
+    /*
+     * The number of chunks in a region
+     */
+    private final int chunksPerRegion;
+
+    /*
+     * The number of chunks in the map
+     */
+    private final int chunkCount;
+
+    /*
+     * The mapped regions, or null for regions not used yet
+     */
+    private final AtomicReferenceArray<MappedByteBuffer> regions;
+
+    /*
+     * The number of regions mapped
+     */
+    private final AtomicInteger loaded = new AtomicInteger();
+
+    /**
+     * Opens a map file
+     *
+     * @param channel  The open file
+     * @param writable True if tiles can be changed
+     * @throws IOException If the file could not be read or is not a map file
+     */
+    private ChunkedTileMap(FileChannel channel, boolean writable) throws IOException {
+        this.channel = channel;
+        this.mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) throw new IOException("Not a tile map file, the header is too short");
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) throw new IOException("Not a tile map file");
+        int version = header.getInt();
+        if (version != VERSION) throw new IOException("Unsupported tile map version " + version);
+        this.width = header.getInt();
+        this.height = header.getInt();
+        this.chunkSize = header.getInt();
+        this.costScale = header.getFloat();
+        if (width <= 0 || height <= 0 || chunkSize <= 0 || chunkSize > 4096) throw new IOException("Invalid tile map size");
+
+        this.chunksX = (width + chunkSize - 1) / chunkSize;
+        int chunksY = (height + chunkSize - 1) / chunkSize;
+        int tiles = chunkSize * chunkSize;
+        this.bitBytes = (tiles + 7) >>> 3;
+        this.chunkBytes = bitBytes + tiles;
+        this.chunkCount = Math.multiplyExact(chunksX, chunksY);
+        this.chunksPerRegion = Math.max(1, REGION_BYTES / chunkBytes);
+        this.regions = new AtomicReferenceArray<>((chunkCount + chunksPerRegion - 1) / chunksPerRegion);
+        if (channel.size() < getFileSize(width, height, chunkSize)) throw new IOException("The tile map file is truncated");
+
+        for (int i = 0; i < costs.length; i++) {
+            costs[i] = i * costScale;
+        }
+    }
+
+    /**
+     * Opens an existing map file for reading
+     *
+     * @param file The map file
+     * @return The map
+     * @throws IOException If the file could not be read or is not a map file
+     */
+    public static ChunkedTileMap open(Path file) throws IOException {
+        return open(file, false);
+    }
+
+    /**
+     * Opens an existing map file
+     *
+     * @param file     The map file
+     * @param writable True if tiles can be changed with {@link #setTile(int, int, boolean, float)}
+     * @return The map
+     * @throws IOException If the file could not be read or is not a map file
+     */
+    public static ChunkedTileMap open(Path file, boolean writable) throws IOException {
+        FileChannel channel = writable
+                ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new ChunkedTileMap(channel, writable);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a new map file where every tile is solid with a cost of 0, and opens it for writing.
+     * The file is created with its full size, but on most file systems the space is not used until tiles are written.
+     *
+     * @param file      The map file, replaced if it exists
+     * @param width     The width of the map in tiles
+     * @param height    The height of the map in tiles
+     * @param chunkSize The width and height of a chunk in tiles
+     * @param costScale The cost of one step of the cost byte, costs are stored as multiples of this from 0 to 255
+     * @return The map
+     * @throws IOException If the file could not be created
+     */
+    public static ChunkedTileMap create(Path file, int width, int height, int chunkSize, float costScale) throws IOException {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("width and height must be positive");
+        if (chunkSize <= 0 || chunkSize > 4096) throw new IllegalArgumentException("chunkSize must be between 1 and 4096");
+        if (!(costScale > 0)) throw new IllegalArgumentException("costScale must be positive");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putInt(chunkSize).putFloat(costScale);
+            header.clear();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+
+            // write the last byte, so the file gets its full size without writing every chunk
+            long size = getFileSize(width, height, chunkSize);
+            if (size > HEADER_SIZE) channel.write(ByteBuffer.allocate(1), size - 1);
+        }
+        return open(file, true);
+    }
+
+    /**
+     * Calculates the size of a map file
+     *
+     * @param width     The width of the map in tiles
+     * @param height    The height of the map in tiles
+     * @param chunkSize The width and height of a chunk in tiles
+     * @return The size of the file in bytes
+     */
+    public static long getFileSize(int width, int height, int chunkSize) {
+        long chunksX = (width + (long) chunkSize - 1) / chunkSize;
+        long chunksY = (height + (long) chunkSize - 1) / chunkSize;
+        long tiles = (long) chunkSize * chunkSize;
+        return HEADER_SIZE + chunksX * chunksY * (((tiles + 7) >>> 3) + tiles);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the width and height of a chunk
+     *
+     * @return The chunk size in tiles
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Gets the cost of one step of the cost byte
+     *
+     * @return The cost scale
+     */
+    public float getCostScale() {
+        return costScale;
+    }
+
+    /**
+     * Gets the number of regions that have been mapped so far, each region is one memory mapping
+     *
+     * @return The number of mapped regions
+     */
+    public int getMappedRegionCount() {
+        return loaded.get();
+    }
+
+    @Override
+    public boolean isTraversable(TileEntity entity, int x, int y) {
+        return isTraversable(x, y);
+    }
+
+    @Override
+    public float getMovementCost(TileEntity entity, int sx, int sy, int tx, int ty) {
+        return getCost(tx, ty);
+    }
+
+    /**
+     * Returns true if a tile is traversable, false if it is solid or outside the map.
+     *
+     * @param x The tile x
+     * @param y The tile y
+     * @return True if the tile is traversable
+     */
+    public boolean isTraversable(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return false;
+        int chunk = getChunkIndex(x, y);
+        int tile = getTileIndex(x, y);
+        return (getRegion(chunk).get(getChunkOffset(chunk) + (tile >>> 3)) & (1 << (tile & 7))) != 0;
+    }
+
+    /**
+     * Gets the cost of a tile
+     *
+     * @param x The tile x
+     * @param y The tile y
+     * @return The cost of moving into the tile
+     */
+    public float getCost(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) throw new IndexOutOfBoundsException("Tile " + x + ", " + y + " is outside the map");
+        int chunk = getChunkIndex(x, y);
+        return costs[getRegion(chunk).get(getChunkOffset(chunk) + bitBytes + getTileIndex(x, y)) & 0xff];
+    }
+
+    /**
+     * Changes a tile. The cost is rounded to the nearest multiple of the cost scale, from 0 to 255 times the cost scale.
+     * The map must be opened as writable.
+     *
+     * @param x           The tile x
+     * @param y           The tile y
+     * @param traversable True if the tile can be walked on
+     * @param cost        The cost of moving into the tile
+     */
+    public void setTile(int x, int y, boolean traversable, float cost) {
+        if (x < 0 || y < 0 || x >= width || y >= height) throw new IndexOutOfBoundsException("Tile " + x + ", " + y + " is outside the map");
+        int chunk = getChunkIndex(x, y);
+        MappedByteBuffer region = getRegion(chunk);
+        int offset = getChunkOffset(chunk);
+        int tile = getTileIndex(x, y);
+        int bits = region.get(offset + (tile >>> 3));
+        bits = traversable ? bits | (1 << (tile & 7)) : bits & ~(1 << (tile & 7));
+        region.put(offset + (tile >>> 3), (byte) bits);
+        region.put(offset + bitBytes + tile, (byte) Math.max(0, Math.min(255, Math.round(cost / costScale))));
+    }
+
+    /**
+     * Writes changed tiles to the file
+     */
+    public void flush() {
+        for (int i = 0; i < regions.length(); i++) {
+            MappedByteBuffer region = regions.get(i);
+            if (region != null && mode == FileChannel.MapMode.READ_WRITE) region.force();
+        }
+    }
+
+    /**
+     * Closes the file. Regions already mapped stay readable until they are garbage collected, but no new regions can be mapped.
+     *
+     * @throws IOException If the file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (mode == FileChannel.MapMode.READ_WRITE) flush();
+        channel.close();
+    }
+
+    /**
+     * Gets the index of a tile inside its chunk
+     *
+     * @param x The tile x
+     * @param y The tile y
+     * @return The index of the tile
+     */
+    private int getTileIndex(int x, int y) {
+        return (y % chunkSize) * chunkSize + x % chunkSize;
+    }
+
+    /**
+     * Gets the index of the chunk of a tile
+     *
+     * @param x The tile x
+     * @param y The tile y
+     * @return The index of the chunk
+     */
+    private int getChunkIndex(int x, int y) {
+        return (y / chunkSize) * chunksX + x / chunkSize;
+    }
+
+    /**
+     * Gets the offset of a chunk inside its region
+     *
+     * @param chunk The index of the chunk
+     * @return The offset in bytes
+     */
+    private int getChunkOffset(int chunk) {
+        return (chunk % chunksPerRegion) * chunkBytes;
+    }
+
+    /**
+     * Gets the region of a chunk, and maps it if this is the first time it is used
+     *
+     * @param chunk The index of the chunk
+     * @return The region
+     */
+    private MappedByteBuffer getRegion(int chunk) {
+        int index = chunk / chunksPerRegion;
+        MappedByteBuffer region = regions.get(index);
+        return region != null ? region : loadRegion(index);
+    }
+
+    /**
+     * Maps a region. If two threads map the same region at once, both get the region stored first.
+     *
+     * @param index The index of the region
+     * @return The region
+     */
+    private MappedByteBuffer loadRegion(int index) {
+        try {
+            int first = index * chunksPerRegion;
+            long bytes = (long) Math.min(chunksPerRegion, chunkCount - first) * chunkBytes;
+            MappedByteBuffer region = channel.map(mode, HEADER_SIZE + (long) first * chunkBytes, bytes);
+            if (regions.compareAndSet(index, null, region)) {
+                loaded.incrementAndGet();
+                return region;
+            }
+            return regions.get(index);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not map region " + index, e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package app.sagen.geometry.AStar;
+
+import app.sagen.geometry.MutableVector2D;
+
+import java.util.ArrayList;
+
+/**
+ * Finds paths for a group of entities that do not collide with each other.
+ * The entities are planned one at a time in the order they are given, and each path is reserved in a
+ * {@link ReservationTable} so the next entities plan around it. Paths only look a fixed number of ticks ahead,
+ * so they should be planned again before the entities reach the end of the window, usually after half of it.
+ *
+ * @author Sagen
+ */
+public class CooperativePathfinder {
+
+    /*
+     * The reservations of the planned entities
+     */
+    private final ReservationTable table = new ReservationTable();
+
+    /*
+     * The search reused for every entity
+     */
+    private final SpaceTimeSearch search;
+
+    /*
+     * The number of ticks to look ahead
+     */
+    private final int window;
+
+    /*
+     * The max number of nodes to expand for each entity
+     */
+    private final int maxExpansions;
+
+    /*
+     * The number of entities planned by the last call to findPaths
+     */
+    private int planned;
+
+    /**
+     * Creates a new instance of the class
+     *
+     * @param map           The TileMap to use
+     * @param window        The number of ticks to look ahead
+     * @param maxExpansions The max number of nodes to expand for each entity, before the closest path found is used
+     */
+    public CooperativePathfinder(TileMap map, int window, int maxExpansions) {
+        if (window <= 0 || window >= ReservationTable.MAX_TIME) {
+            throw new IllegalArgumentException("window must be between 1 and " + (ReservationTable.MAX_TIME - 1));
+        }
+        if (maxExpansions <= 0) throw new IllegalArgumentException("maxExpansions must be positive");
+        this.search = new SpaceTimeSearch(map, table);
+        this.window = window;
+        this.maxExpansions = maxExpansions;
+    }
+
+    /**
+     * Gets the reservation table. Tiles can be reserved for agents that are not planned by this pathfinder before
+     * calling {@link #findPaths(TileEntity[], int[], int[])}, with agent numbers after the entities of this call and
+     * of the last call. Those reservations are kept, the pathfinder only removes the reservations of its own entities.
+     *
+     * @return The reservation table
+     */
+    public ReservationTable getReservationTable() {
+        return table;
+    }
+
+    /**
+     * Finds paths for a group of entities from their current tiles.
+     * Earlier entities get priority, later entities wait or walk around them. Entities that can not reach their
+     * target in time get the path closest to it, and entities that can not move at all keep their tile.
+     * An entity that is boxed in by the paths before it can still be run into, giving it a higher priority the
+     * next time solves this. The reservations of the entities from the last call are removed first, reservations of
+     * other agents are kept.
+     *
+     * @param entities The entities, the agent of every entity is its index
+     * @param targetX  The target x of every entity
+     * @param targetY  The target y of every entity
+     * @return The path of every entity as described in {@link SpaceTimeSearch#getPath()}, or null for entities
+     * without a path
+     */
+    public ArrayList<ArrayList<MutableVector2D>> findPaths(TileEntity[] entities, int[] targetX, int[] targetY) {
+        if (targetX.length < entities.length || targetY.length < entities.length) {
+            throw new IllegalArgumentException("there must be a target for every entity");
+        }
+        for (int agent = 0, count = Math.max(planned, entities.length); agent < count; agent++) {
+            table.release(agent);
+        }
+        planned = entities.length;
+
+        ArrayList<ArrayList<MutableVector2D>> paths = new ArrayList<>(entities.length);
+        for (int agent = 0; agent < entities.length; agent++) {
+            TileEntity entity = entities[agent];
+            search.start(entity, agent, entity.getTileX(), entity.getTileY(), targetX[agent], targetY[agent], window);
+            search.step(maxExpansions);
+
+            if (search.reservePath()) {
+                paths.add(search.getPartialPath());
+            } else {
+                // no path at all, stay on the tile so the other entities walk around
+                int x = entity.getTileX();
+                int y = entity.getTileY();
+                for (int t = 0; t <= window && x >= 0 && y >= 0 && table.isFree(x, y, t, agent); t++) {
+                    table.reserve(x, y, t, agent);
+                }
+                paths.add(null);
+            }
+        }
+        return paths;
+    }
+}
@@ -0,0 +1,290 @@
+package app.sagen.geometry.AStar;
+
+import java.util.Arrays;
+
+/**
+ * A cache of the movement costs of a TileMap for one kind of entity, so a search can read the costs from arrays
+ * instead of asking the map for every move.<br>
+ * Entities that move the same way, for example every entity of one type, can share a grid built with one of them
+ * as the profile. The cost of moving from every tile to each of the four tiles next to it is stored as a short,
+ * in steps of the scale of the grid, so a cost is rounded to the nearest step. A cost above 0 is stored as at least
+ * one step, so a move that costs something never becomes free, and a cost above 32767 steps is capped at 32767 steps.
+ * Moves to solid tiles and to tiles outside the map are stored as blocked, so a search does not have to check them.<br>
+ * When the map changes, mark the changed area with {@link #markDirty(int, int, int, int)}, and call
+ * {@link #update()} before the next search. The grid must not be updated while a search is using it.
+ *
+ * @author Sagen
+ */
+public class CostGrid implements TileMap {
+
+    /**
+     * The stored cost of a move that is not allowed
+     */
+    public static final short BLOCKED = -1;
+
+    /*
+     * The direction of a move to the tile before along the x axis
+     */
+    static final int LEFT = 0;
+
+    /*
+     * The direction of a move to the tile before along the y axis
+     */
+    static final int UP = 1;
+
+    /*
+     * The direction of a move to the tile after along the y axis
+     */
+    static final int DOWN = 2;
+
+    /*
+     * The direction of a move to the tile after along the x axis
+     */
+    static final int RIGHT = 3;
+
+    /*
+     * The offset x of every direction
+     */
+    private static final int[] DX = {-1, 0, 0, 1};
+
+    /*
+     * The offset y of every direction
+     */
+    private static final int[] DY = {0, -1, 1, 0};
+
+    /*
+     * The map the costs are read from
+     */
+    private final TileMap map;
+
+    /*
+     * The entity the costs are calculated for
+     */
+    private final TileEntity profile;
+
+    /*
+     * The width of the map
+     */
+    final int width;
+
+    /*
+     * The height of the map
+     */
+    final int height;
+
+    /*
+     * The cost of one step of a stored cost
+     */
+    final float scale;
+
+    /*
+     * The stored cost of moving from every tile in every direction, or BLOCKED
+     */
+    final short[][] costs = new short[4][];
+
+    /*
+     * One bit for every tile, set if the tile is traversable
+     */
+    private final long[] traversable;
+
+    /*
+     * The areas marked as changed, four values each
+     */
+    private int[] dirty = new int[16];
+
+    /*
+     * The number of values in use in dirty
+     */
+    private int dirtyCount;
+
+    /**
+     * Builds the grid of a map for an entity
+     *
+     * @param map     The map to read the costs from
+     * @param profile The entity to calculate the costs for
+     * @param scale   The cost of one step of a stored cost, for example 1 if every cost is a whole number
+     */
+    public CostGrid(TileMap map, TileEntity profile, float scale) {
+        if (!(scale > 0)) throw new IllegalArgumentException("scale must be positive");
+        this.map = map;
+        this.profile = profile;
+        this.width = map.getWidth();
+        this.height = map.getHeight();
+        this.scale = scale;
+
+        int tiles = Math.multiplyExact(width, height);
+        for (int direction = 0; direction < costs.length; direction++) {
+            costs[direction] = new short[tiles];
+        }
+        traversable = new long[(tiles + 63) >>> 6];
+        refresh(0, 0, width, height);
+    }
+
+    /**
+     * Gets the map the costs are read from
+     *
+     * @return The map
+     */
+    public TileMap getMap() {
+        return map;
+    }
+
+    /**
+     * Gets the entity the costs are calculated for
+     *
+     * @return The profile
+     */
+    public TileEntity getProfile() {
+        return profile;
+    }
+
+    /**
+     * Gets the cost of one step of a stored cost
+     *
+     * @return The scale
+     */
+    public float getScale() {
+        return scale;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns true if a tile is traversable for the profile, false if it is solid.
+     * The entity is ignored, the profile of the grid is used instead.
+     *
+     * @param entity The entity, ignored
+     * @param x      The tile x
+     * @param y      The tile y
+     * @return True if the tile is traversable
+     */
+    @Override
+    public boolean isTraversable(TileEntity entity, int x, int y) {
+        int index = y * width + x;
+        return (traversable[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Gets the cost of a move for the profile. Moves to the four tiles next to a tile are read from the grid,
+     * other moves are read from the map. The entity is ignored, the profile of the grid is used instead.
+     *
+     * @param entity The entity, ignored
+     * @param sx     The x of the tile moved from
+     * @param sy     The y of the tile moved from
+     * @param tx     The x of the tile moved to
+     * @param ty     The y of the tile moved to
+     * @return The cost of the move
+     */
+    @Override
+    public float getMovementCost(TileEntity entity, int sx, int sy, int tx, int ty) {
+        for (int direction = 0; direction < DX.length; direction++) {
+            if (tx - sx == DX[direction] && ty - sy == DY[direction]) {
+                short cost = costs[direction][sy * width + sx];
+                if (cost != BLOCKED) return cost * scale;
+            }
+        }
+        return map.getMovementCost(profile, sx, sy, tx, ty);
+    }
+
+    /**
+     * Marks an area of the map as changed. The costs are calculated again on the next call to {@link #update()}.
+     *
+     * @param x The x of the area
+     * @param y The y of the area
+     * @param w The width of the area
+     * @param h The height of the area
+     */
+    public void markDirty(int x, int y, int w, int h) {
+        if (w <= 0 || h <= 0) return;
+        if (dirtyCount == dirty.length) {
+            dirty = Arrays.copyOf(dirty, dirtyCount * 2);
+        }
+        dirty[dirtyCount++] = x;
+        dirty[dirtyCount++] = y;
+        dirty[dirtyCount++] = w;
+        dirty[dirtyCount++] = h;
+    }
+
+    /**
+     * Returns true if an area has been marked as changed since the last update, false if not.
+     *
+     * @return True if the grid has to be updated
+     */
+    public boolean isDirty() {
+        return dirtyCount > 0;
+    }
+
+    /**
+     * Calculates the costs of every area marked as changed again
+     */
+    public void update() {
+        for (int i = 0; i < dirtyCount; i += 4) {
+            refresh(dirty[i], dirty[i + 1], dirty[i + 2], dirty[i + 3]);
+        }
+        dirtyCount = 0;
+    }
+
+    /**
+     * Calculates the costs of an area again at once.
+     * The moves into the area from the tiles around it are calculated again as well.
+     *
+     * @param x The x of the area
+     * @param y The y of the area
+     * @param w The width of the area
+     * @param h The height of the area
+     */
+    public void refresh(int x, int y, int w, int h) {
+        int minX = Math.max(0, x);
+        int minY = Math.max(0, y);
+        int maxX = (int) Math.min(width, (long) x + w);
+        int maxY = (int) Math.min(height, (long) y + h);
+        if (minX >= maxX || minY >= maxY) return;
+
+        // the traversable tiles first, the costs of the moves depend on them
+        for (int ty = minY; ty < maxY; ty++) {
+            for (int tx = minX; tx < maxX; tx++) {
+                int index = ty * width + tx;
+                if (map.isTraversable(profile, tx, ty)) {
+                    traversable[index >>> 6] |= 1L << index;
+                } else {
+                    traversable[index >>> 6] &= ~(1L << index);
+                }
+            }
+        }
+
+        // the moves from the area and from the tiles around it
+        for (int sy = Math.max(0, minY - 1), endY = Math.min(height, maxY + 1); sy < endY; sy++) {
+            for (int sx = Math.max(0, minX - 1), endX = Math.min(width, maxX + 1); sx < endX; sx++) {
+                int index = sy * width + sx;
+                for (int direction = 0; direction < DX.length; direction++) {
+                    costs[direction][index] = calculateCost(sx, sy, sx + DX[direction], sy + DY[direction]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the cost of a move from the map and rounds it to the nearest step.
+     * Costs above 0 are at least one step, and costs above 32767 steps are capped.
+     *
+     * @param sx The x of the tile moved from
+     * @param sy The y of the tile moved from
+     * @param tx The x of the tile moved to
+     * @param ty The y of the tile moved to
+     * @return The stored cost, or BLOCKED
+     */
+    private short calculateCost(int sx, int sy, int tx, int ty) {
+        if (tx < 0 || ty < 0 || tx >= width || ty >= height || !isTraversable(profile, tx, ty)) return BLOCKED;
+        float cost = map.getMovementCost(profile, sx, sy, tx, ty) / scale;
+        if (!(cost > 0)) return 0;
+        return (short) Math.max(1, Math.min(Short.MAX_VALUE, Math.round(cost)));
+    }
+}
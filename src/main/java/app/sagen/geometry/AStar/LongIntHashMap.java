@@ -0,0 +1,188 @@
+package app.sagen.geometry.AStar;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from primitive longs to primitive ints, using open addressing with linear probing.
+ * Used to look up nodes by their packed coordinates without boxing.<br>
+ * The key Long.MIN_VALUE is used to mark empty entries, and can not be stored.
+ *
+ * @author Sagen
+ */
+final class LongIntHashMap {
+
+    /*
+     * The key of an empty entry
+     */
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    /*
+     * The keys, or EMPTY for empty entries
+     */
+    private long[] keys;
+
+    /*
+     * The values
+     */
+    private int[] values;
+
+    /*
+     * Used to wrap an index around the arrays
+     */
+    private int mask;
+
+    /*
+     * The number of entries in use
+     */
+    private int size;
+
+    /**
+     * Creates a new empty map
+     */
+    LongIntHashMap() {
+        this(16);
+    }
+
+    /**
+     * Creates a new empty map with room for a number of entries before it has to grow
+     *
+     * @param expected The expected number of entries
+     */
+    LongIntHashMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Spreads the bits of a key, so packed coordinates do not end up next to each other
+     *
+     * @param key The key
+     * @return The index of the key
+     */
+    private int indexOf(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    /**
+     * Gets the value of a key
+     *
+     * @param key The key
+     * @return The value, or -1 if the key is not in the map
+     */
+    int get(long key) {
+        for (int i = indexOf(key); ; i = (i + 1) & mask) {
+            long current = keys[i];
+            if (current == key) return values[i];
+            if (current == EMPTY) return -1;
+        }
+    }
+
+    /**
+     * Returns true if the map contains the key, false if not.
+     *
+     * @param key The key
+     * @return True if the map contains the key
+     */
+    boolean containsKey(long key) {
+        for (int i = indexOf(key); ; i = (i + 1) & mask) {
+            long current = keys[i];
+            if (current == key) return true;
+            if (current == EMPTY) return false;
+        }
+    }
+
+    /**
+     * Adds or updates a key
+     *
+     * @param key   The key
+     * @param value The value
+     */
+    void put(long key, int value) {
+        for (int i = indexOf(key); ; i = (i + 1) & mask) {
+            long current = keys[i];
+            if (current == key) {
+                values[i] = value;
+                return;
+            }
+            if (current == EMPTY) {
+                keys[i] = key;
+                values[i] = value;
+                if (++size * 2 > keys.length) grow();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes a key
+     *
+     * @param key The key
+     * @return The value of the removed key, or -1 if the key was not in the map
+     */
+    int remove(long key) {
+        int i = indexOf(key);
+        while (keys[i] != key) {
+            if (keys[i] == EMPTY) return -1;
+            i = (i + 1) & mask;
+        }
+        int value = values[i];
+        size--;
+
+        // move the following entries back, so no entry is separated from its index by an empty entry
+        int gap = i;
+        for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int index = indexOf(keys[j]);
+            if (((j - index) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = EMPTY;
+        return value;
+    }
+
+    /**
+     * Calculates the size of the map
+     *
+     * @return The number of entries
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Removes every entry. The capacity is kept, so the map can be reused without creating new arrays.
+     */
+    void clear() {
+        if (size == 0) return;
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * Doubles the capacity and moves every entry to its new index
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        mask = keys.length - 1;
+        Arrays.fill(keys, EMPTY);
+        for (int j = 0; j < oldKeys.length; j++) {
+            long key = oldKeys[j];
+            if (key == EMPTY) continue;
+            int i = indexOf(key);
+            while (keys[i] != EMPTY) i = (i + 1) & mask;
+            keys[i] = key;
+            values[i] = oldValues[j];
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package app.sagen.geometry.AStar;
+
+/**
+ * The tiles a 3D path can move to from a tile
+ *
+ * @author Sagen
+ */
+public enum Neighbourhood3D {
+
+    /**
+     * The 6 tiles sharing a face with the tile
+     */
+    FACES(1),
+
+    /**
+     * The 18 tiles sharing a face or an edge with the tile
+     */
+    EDGES(2),
+
+    /**
+     * The 26 tiles sharing a face, an edge or a corner with the tile
+     */
+    CORNERS(3);
+
+    /*
+     * The offset x of every neighbour
+     */
+    final int[] dx;
+
+    /*
+     * The offset y of every neighbour
+     */
+    final int[] dy;
+
+    /*
+     * The offset z of every neighbour
+     */
+    final int[] dz;
+
+    /*
+     * The length of the move to every neighbour
+     */
+    final float[] length;
+
+    /**
+     * Creates the offsets of the neighbours
+     *
+     * @param maxAxes The max number of axes a move can change
+     */
+    Neighbourhood3D(int maxAxes) {
+        int count = maxAxes == 1 ? 6 : maxAxes == 2 ? 18 : 26;
+        dx = new int[count];
+        dy = new int[count];
+        dz = new int[count];
+        length = new float[count];
+
+        int i = 0;
+        for (int z = -1; z <= 1; z++) {
+            for (int y = -1; y <= 1; y++) {
+                for (int x = -1; x <= 1; x++) {
+                    int axes = Math.abs(x) + Math.abs(y) + Math.abs(z);
+                    if (axes == 0 || axes > maxAxes) continue;
+                    dx[i] = x;
+                    dy[i] = y;
+                    dz[i] = z;
+                    length[i++] = (float) Math.sqrt(axes);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of tiles a path can move to from a tile
+     *
+     * @return The number of neighbours
+     */
+    public int getSize() {
+        return dx.length;
+    }
+
+    /**
+     * Calculates the length of the shortest path between two tiles when every tile costs 1, ignoring solid tiles.
+     * This is the octile distance in 3D.
+     *
+     * @param dx The distance along the x axis
+     * @param dy The distance along the y axis
+     * @param dz The distance along the z axis
+     * @return The length of the shortest path
+     */
+    public float distance(int dx, int dy, int dz) {
+        dx = Math.abs(dx);
+        dy = Math.abs(dy);
+        dz = Math.abs(dz);
+
+        // sort the distances, so max >= mid >= min
+        int max = Math.max(dx, Math.max(dy, dz));
+        int min = Math.min(dx, Math.min(dy, dz));
+        int mid = dx + dy + dz - max - min;
+
+        switch (this) {
+            case FACES:
+                return max + mid + min;
+            case EDGES:
+                // edge moves cover two axes at once, but can not cover more than the longest axis allows
+                if (max >= mid + min) return SQRT2 * (mid + min) + (max - mid - min);
+                return SQRT2 * (max + mid + min) / 2;
+            default:
+                // corner moves first, then edge moves, then face moves
+                return SQRT3 * min + SQRT2 * (mid - min) + (max - mid);
+        }
+    }
+
+    /*
+     * The length of an edge move
+     */
+    private static final float SQRT2 = (float) Math.sqrt(2);
+
+    /*
+     * The length of a corner move
+     */
+    private static final float SQRT3 = (float) Math.sqrt(3);
+}
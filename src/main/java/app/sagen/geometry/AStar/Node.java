@@ -4,7 +4,9 @@ package app.sagen.geometry.AStar;
  * This class represents a node for the Pathfinder. Each node has a position, a parent, a cost and distance from source.
  *
  * @author Sagen
+ * @deprecated The Pathfinder no longer uses nodes, {@link PathSearch} stores its nodes in arrays.
  */
+@Deprecated
 public class Node implements Comparable<Node> {
 
     /**
@@ -0,0 +1,234 @@
+package app.sagen.geometry.AStar;
+
+import java.util.Arrays;
+
+/**
+ * The open set of a search, implemented as a binary heap of node slots.
+ * The heap is ordered by f = g + h, and nodes with the same f are ordered by the smallest h, so the search
+ * keeps going towards the target. The position of every slot in the heap is remembered, so the cost of a
+ * node already in the heap can be updated without searching for it.
+ *
+ * @author Sagen
+ */
+final class NodeHeap {
+
+    /*
+     * The slots in heap order
+     */
+    private int[] heap = new int[64];
+
+    /*
+     * The f of each entry in heap order
+     */
+    private float[] heapF = new float[64];
+
+    /*
+     * The h of each entry in heap order
+     */
+    private float[] heapH = new float[64];
+
+    /*
+     * The position of each slot in the heap, or -1 if the slot is not in the heap
+     */
+    private int[] positions = new int[64];
+
+    /*
+     * The number of entries in the heap
+     */
+    private int size;
+
+    /**
+     * Creates a new empty heap
+     */
+    NodeHeap() {
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * Calculates the size of the heap
+     *
+     * @return The number of slots in the heap
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if the heap is empty, false if not.
+     *
+     * @return True if the heap is empty
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns true if a slot is in the heap, false if not.
+     *
+     * @param slot The slot
+     * @return True if the heap contains the slot
+     */
+    boolean contains(int slot) {
+        return slot < positions.length && positions[slot] >= 0;
+    }
+
+    /**
+     * Gets the slot with the smallest f without removing it
+     *
+     * @return The first slot
+     */
+    int peek() {
+        return heap[0];
+    }
+
+    /**
+     * Gets the smallest f in the heap
+     *
+     * @return The smallest f
+     */
+    float peekF() {
+        return heapF[0];
+    }
+
+    /**
+     * Adds a slot to the heap, or updates its f and h if it is already in the heap
+     *
+     * @param slot The slot
+     * @param f    The cost to the target through the node, g + h
+     * @param h    The estimated cost from the node to the target
+     */
+    void add(int slot, float f, float h) {
+        if (slot >= positions.length) {
+            int oldLength = positions.length;
+            positions = Arrays.copyOf(positions, Math.max(slot + 1, oldLength * 2));
+            Arrays.fill(positions, oldLength, positions.length, -1);
+        }
+
+        int position = positions[slot];
+        if (position >= 0) {
+            // update the entry, and move it in the direction its cost changed
+            boolean smaller = isBefore(f, h, heapF[position], heapH[position]);
+            heapF[position] = f;
+            heapH[position] = h;
+            if (smaller) {
+                siftUp(position);
+            } else {
+                siftDown(position);
+            }
+            return;
+        }
+
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+            heapF = Arrays.copyOf(heapF, size * 2);
+            heapH = Arrays.copyOf(heapH, size * 2);
+        }
+        heap[size] = slot;
+        heapF[size] = f;
+        heapH[size] = h;
+        positions[slot] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * Removes the slot with the smallest f from the heap
+     *
+     * @return The removed slot
+     */
+    int poll() {
+        int first = heap[0];
+        positions[first] = -1;
+        if (--size > 0) {
+            move(size, 0);
+            siftDown(0);
+        }
+        return first;
+    }
+
+    /**
+     * Removes every slot from the heap. The capacity is kept, so the heap can be reused without creating new arrays.
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Moves an entry up until its parent is before it
+     *
+     * @param position The position of the entry
+     */
+    private void siftUp(int position) {
+        int slot = heap[position];
+        float f = heapF[position];
+        float h = heapH[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!isBefore(f, h, heapF[parent], heapH[parent])) break;
+            move(parent, position);
+            position = parent;
+        }
+        put(slot, f, h, position);
+    }
+
+    /**
+     * Moves an entry down until its children are after it
+     *
+     * @param position The position of the entry
+     */
+    private void siftDown(int position) {
+        int slot = heap[position];
+        float f = heapF[position];
+        float h = heapH[position];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < size && isBefore(heapF[right], heapH[right], heapF[child], heapH[child])) child = right;
+            if (!isBefore(heapF[child], heapH[child], f, h)) break;
+            move(child, position);
+            position = child;
+        }
+        put(slot, f, h, position);
+    }
+
+    /**
+     * Moves an entry to another position
+     *
+     * @param from The position to move from
+     * @param to   The position to move to
+     */
+    private void move(int from, int to) {
+        put(heap[from], heapF[from], heapH[from], to);
+    }
+
+    /**
+     * Puts an entry at a position
+     *
+     * @param slot     The slot
+     * @param f        The f of the slot
+     * @param h        The h of the slot
+     * @param position The position
+     */
+    private void put(int slot, float f, float h, int position) {
+        heap[position] = slot;
+        heapF[position] = f;
+        heapH[position] = h;
+        positions[slot] = position;
+    }
+
+    /**
+     * Compares two entries
+     *
+     * @param f      The f of the first entry
+     * @param h      The h of the first entry
+     * @param otherF The f of the second entry
+     * @param otherH The h of the second entry
+     * @return True if the first entry should be before the second entry
+     */
+    private static boolean isBefore(float f, float h, float otherF, float otherH) {
+        return f < otherF || (f == otherF && h < otherH);
+    }
+}
@@ -5,7 +5,10 @@ import java.util.Collections;
 
 /**
  * A simple implementation of a sorted map. Calls <code>Collections#sort</code> after every insertion
+ *
+ * @deprecated The Pathfinder no longer uses this list, {@link PathSearch} uses a binary heap as its open set.
  */
+@Deprecated
 public class NodeList {
 
     /*
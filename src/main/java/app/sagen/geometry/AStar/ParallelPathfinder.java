@@ -0,0 +1,773 @@
+package app.sagen.geometry.AStar;
+
+import app.sagen.geometry.MutableVector2D;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Calculates a single path on several threads at once, for searches over very large maps that would take a long time
+ * on one thread, for example when generating a world.<br>
+ * The map is split into blocks of 4x4 tiles, and every block is owned by one worker thread, picked by a hash of its
+ * coordinates. Every worker has its own open set and its own nodes, and only expands the nodes it owns. When a worker
+ * finds a neighbour owned by another worker, the neighbour is sent to the owner through a lock-free queue, in batches
+ * so the queue is not touched for every node. This is known as hash distributed A* (HDA*).<br>
+ * The first path found is not always the shortest, since the workers do not expand the nodes in the same order as a
+ * single search would. The cost of the shortest path found so far is shared between the workers, and nodes that can
+ * not lead to a shorter path are dropped. The search ends when every worker has run out of nodes to expand and no
+ * nodes are on the way between workers, which is tracked by a single counter of the busy workers and the batches
+ * sent but not yet received. The path found is then as short as the path found by {@link Pathfinder}.<br>
+ * A path is not allowed to be longer than the max search distance, instead of stopping the search when any node
+ * gets that far, so the path found can be different from the path found by {@link Pathfinder} when the distance is
+ * reached. The map is read from several threads at once, so it must not be changed while a path is calculated.<br>
+ * The worker threads are started once and wait between paths, call {@link #close()} to stop them.
+ *
+ * @author Sagen
+ */
+public class ParallelPathfinder implements AutoCloseable {
+
+    /*
+     * The number of bits of a coordinate used to pick the block of a tile
+     */
+    private static final int BLOCK_SHIFT = 2;
+
+    /*
+     * The max number of nodes in a batch sent to another worker
+     */
+    private static final int BATCH_SIZE = 256;
+
+    /*
+     * The number of nodes a worker expands before it sends its batches and reads its queue
+     */
+    private static final int ROUND_SIZE = 64;
+
+    /*
+     * The slot of a node that does not exist
+     */
+    private static final int NONE = -1;
+
+    /*
+     * The packed parent of the source node
+     */
+    private static final long NO_PARENT = -1L;
+
+    /*
+     * The TileMap used
+     */
+    private final TileMap map;
+
+    /*
+     * The cached costs, or null to read the costs from the map
+     */
+    private final CostGrid grid;
+
+    /*
+     * The workers, each owning the nodes with its index as hash
+     */
+    private final Worker[] workers;
+
+    /*
+     * The number of busy workers and batches sent but not yet received, the search ends when it reaches 0
+     */
+    private final AtomicLong work = new AtomicLong();
+
+    /*
+     * The cost of the shortest path found so far, as the bits of a float
+     */
+    private final AtomicInteger incumbent = new AtomicInteger();
+
+    /*
+     * The entity to find a path for
+     */
+    private TileEntity entity;
+
+    /*
+     * The target x
+     */
+    private int tx;
+
+    /*
+     * The target y
+     */
+    private int ty;
+
+    /*
+     * The packed coordinates of the target
+     */
+    private long target;
+
+    /*
+     * The max number of moves of a path
+     */
+    private int maxSearchDistance;
+
+    /*
+     * True when the workers should stop
+     */
+    private volatile boolean done;
+
+    /*
+     * Guards the fields below, and wakes the threads when a path is started
+     */
+    private final Object lock = new Object();
+
+    /*
+     * The threads running every worker except the first, which runs on the calling thread
+     */
+    private final Thread[] threads;
+
+    /*
+     * The number of paths started, so a thread knows when to start the next one
+     */
+    private long generation;
+
+    /*
+     * The number of threads done with the current path
+     */
+    private int finished;
+
+    /*
+     * True after close has been called
+     */
+    private boolean closed;
+
+    /*
+     * The first exception thrown by a worker during the current path, or null
+     */
+    private Throwable failure;
+
+    /**
+     * Creates a new instance of the class
+     *
+     * @param map     The TileMap to use
+     * @param threads The number of threads searching for a path
+     */
+    public ParallelPathfinder(TileMap map, int threads) {
+        this(map, null, threads);
+    }
+
+    /**
+     * Creates a new instance of the class, reading the costs from a cost grid.
+     * The profile of the grid is used for every entity.
+     *
+     * @param grid    The cost grid to use
+     * @param threads The number of threads searching for a path
+     */
+    public ParallelPathfinder(CostGrid grid, int threads) {
+        this(grid, grid, threads);
+    }
+
+    /**
+     * Creates a new instance of the class
+     *
+     * @param map     The TileMap to use
+     * @param grid    The cached costs, or null
+     * @param threads The number of threads searching for a path
+     */
+    private ParallelPathfinder(TileMap map, CostGrid grid, int threads) {
+        if (threads <= 0) throw new IllegalArgumentException("threads must be positive");
+        this.map = map;
+        this.grid = grid;
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(i);
+        }
+        this.threads = new Thread[threads - 1];
+        for (int i = 0; i < this.threads.length; i++) {
+            Worker worker = workers[i + 1];
+            this.threads[i] = new Thread(() -> work(worker), "parallel-pathfinder-" + (i + 1));
+            this.threads[i].setDaemon(true);
+            this.threads[i].start();
+        }
+    }
+
+    /**
+     * Calculates a path between two entities
+     *
+     * @param entity            The entity source
+     * @param toEntity          The entity destination
+     * @param maxSearchDistance The max distance to search for a path
+     * @return The path
+     */
+    public ArrayList<MutableVector2D> findPath(TileEntity entity, TileEntity toEntity, int maxSearchDistance) {
+        return findPath(entity, entity.getTileX(), entity.getTileY(), toEntity.getTileX(), toEntity.getTileY(), maxSearchDistance);
+    }
+
+    /**
+     * Calculates a path between two positions for an entity.
+     * The calling thread is used as one of the workers, and waits for the other workers to finish.
+     *
+     * @param entity            The entity to find a path for
+     * @param sx                The source x
+     * @param sy                The source y
+     * @param tx                The target x
+     * @param ty                The target y
+     * @param maxSearchDistance The max distance to search for a path
+     * @return The path as described in {@link PathSearch#getPath()}, or null if there is no path
+     * @throws IllegalStateException If the pathfinder is closed
+     * @throws RuntimeException      If the map threw while the path was calculated, rethrown once every worker has stopped
+     */
+    public synchronized ArrayList<MutableVector2D> findPath(TileEntity entity, int sx, int sy, int tx, int ty, int maxSearchDistance) {
+        // The target node has no parent when it is the source, so there is no path to it
+        if (sx == tx && sy == ty) {
+            return null;
+        }
+
+        // Ignore sources and targets outside the tileMap, and targets that are solid
+        if (!isInside(sx, sy) || !isInside(tx, ty) || !map.isTraversable(entity, tx, ty)) {
+            return null;
+        }
+
+        synchronized (lock) {
+            if (closed) throw new IllegalStateException("The pathfinder is closed");
+        }
+
+        this.entity = entity;
+        this.tx = tx;
+        this.ty = ty;
+        this.target = PathSearch.pack(tx, ty);
+        this.maxSearchDistance = maxSearchDistance;
+        this.done = false;
+        incumbent.set(Float.floatToIntBits(Float.POSITIVE_INFINITY));
+
+        // every worker starts busy, and the owner of the source starts with it
+        work.set(workers.length);
+        for (Worker worker : workers) {
+            worker.reset();
+        }
+        long source = PathSearch.pack(sx, sy);
+        workers[ownerOf(source)].receive(source, NO_PARENT, 0, 0);
+
+        // wake the threads, and run the first worker on this thread
+        synchronized (lock) {
+            generation++;
+            finished = 0;
+            failure = null;
+            lock.notifyAll();
+        }
+        runWorker(workers[0]);
+
+        // the search is done, wait for the other workers to leave it before their nodes are read
+        boolean interrupted = false;
+        Throwable failure;
+        synchronized (lock) {
+            while (finished < threads.length) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            failure = this.failure;
+            this.failure = null;
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+
+        if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+        if (failure instanceof Error) throw (Error) failure;
+        if (failure != null) throw new IllegalStateException("A worker failed", failure);
+        return buildPath();
+    }
+
+    /**
+     * Runs a worker for every path until the pathfinder is closed
+     *
+     * @param worker The worker
+     */
+    private void work(Worker worker) {
+        long seen = 0;
+        while (true) {
+            synchronized (lock) {
+                while (generation == seen && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        // the threads are only stopped by close, a path may be waiting for this worker
+                    }
+                }
+                if (closed) return;
+                seen = generation;
+            }
+
+            try {
+                runWorker(worker);
+            } finally {
+                synchronized (lock) {
+                    finished++;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs a worker for the current path. If the worker throws, the exception is stored and every worker is
+     * stopped, so the path ends instead of waiting for a worker that is gone.
+     *
+     * @param worker The worker
+     */
+    private void runWorker(Worker worker) {
+        try {
+            worker.run();
+        } catch (Throwable e) {
+            synchronized (lock) {
+                if (failure == null) failure = e;
+            }
+            done = true;
+        }
+    }
+
+    /**
+     * Stops the threads. A path being calculated is finished first.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            synchronized (lock) {
+                closed = true;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of nodes expanded by every worker during the last path
+     *
+     * @return The number of expanded nodes
+     */
+    public synchronized long getExpandedCount() {
+        long count = 0;
+        for (Worker worker : workers) {
+            count += worker.expanded;
+        }
+        return count;
+    }
+
+    /**
+     * Returns true if a tile is inside the map
+     *
+     * @param x The tile x
+     * @param y The tile y
+     * @return True if the tile is inside
+     */
+    private boolean isInside(int x, int y) {
+        return x >= 0 && y >= 0 && x < map.getWidth() && y < map.getHeight();
+    }
+
+    /**
+     * Picks the worker owning a node, by a hash of the block of the node
+     *
+     * @param node The packed coordinates
+     * @return The index of the worker
+     */
+    private int ownerOf(long node) {
+        long block = PathSearch.pack(PathSearch.unpackX(node) >> BLOCK_SHIFT, PathSearch.unpackY(node) >> BLOCK_SHIFT);
+        long hash = block * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 29;
+        return (int) ((hash & Long.MAX_VALUE) % workers.length);
+    }
+
+    /**
+     * Estimates the cost from a tile to the target
+     *
+     * @param node The packed coordinates of the tile
+     * @return The straight line distance to the target
+     */
+    private float heuristic(long node) {
+        float dx = tx - PathSearch.unpackX(node);
+        float dy = ty - PathSearch.unpackY(node);
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Gets the cost of the shortest path found so far
+     *
+     * @return The cost, or infinity if no path has been found
+     */
+    private float getIncumbent() {
+        return Float.intBitsToFloat(incumbent.get());
+    }
+
+    /**
+     * Lowers the cost of the shortest path found so far.
+     * Costs are never negative, so the bits of the floats are ordered the same way as the floats.
+     *
+     * @param cost The cost of a path to the target
+     */
+    private void offerIncumbent(float cost) {
+        int bits = Float.floatToIntBits(cost);
+        for (int current = incumbent.get(); bits < current; current = incumbent.get()) {
+            if (incumbent.compareAndSet(current, bits)) return;
+        }
+    }
+
+    /**
+     * Builds the path to the target by following the parents through the workers owning them
+     *
+     * @return The path, or null if no path was found
+     */
+    private ArrayList<MutableVector2D> buildPath() {
+        if (getIncumbent() == Float.POSITIVE_INFINITY) return null;
+
+        // Calculate point between every node for a smoother path
+        ArrayList<MutableVector2D> path = new ArrayList<>();
+        long current = target;
+        for (long parent = workers[ownerOf(current)].getParent(current); parent != NO_PARENT;
+             current = parent, parent = workers[ownerOf(current)].getParent(current)) {
+            path.add(new MutableVector2D(
+                    (PathSearch.unpackX(current) + PathSearch.unpackX(parent)) / 2.0 + .5,
+                    (PathSearch.unpackY(current) + PathSearch.unpackY(parent)) / 2.0 + .5));
+        }
+        return path;
+    }
+
+    /**
+     * Nodes sent from one worker to another
+     */
+    private static final class Batch {
+
+        /*
+         * The packed coordinates of every node
+         */
+        final long[] nodes = new long[BATCH_SIZE];
+
+        /*
+         * The packed coordinates of the parent of every node
+         */
+        final long[] parents = new long[BATCH_SIZE];
+
+        /*
+         * The cost from the source to every node
+         */
+        final float[] costs = new float[BATCH_SIZE];
+
+        /*
+         * The number of moves from the source to every node
+         */
+        final int[] depths = new int[BATCH_SIZE];
+
+        /*
+         * The number of nodes in the batch
+         */
+        int size;
+    }
+
+    /**
+     * A thread expanding the nodes it owns
+     */
+    private final class Worker implements Runnable {
+
+        /*
+         * The index of the worker
+         */
+        private final int index;
+
+        /*
+         * The batches sent to this worker
+         */
+        private final ConcurrentLinkedQueue<Batch> inbox = new ConcurrentLinkedQueue<>();
+
+        /*
+         * The batch being filled for every other worker, or null
+         */
+        private final Batch[] outgoing;
+
+        /*
+         * The packed coordinates of every node
+         */
+        private long[] keys = new long[64];
+
+        /*
+         * The cost from the source to every node
+         */
+        private float[] g = new float[64];
+
+        /*
+         * The estimated cost from every node to the target
+         */
+        private float[] h = new float[64];
+
+        /*
+         * The packed coordinates of the parent of every node
+         */
+        private long[] parents = new long[64];
+
+        /*
+         * The number of parents of every node
+         */
+        private int[] depths = new int[64];
+
+        /*
+         * The slot of every node by its packed coordinates
+         */
+        private final LongIntHashMap slots = new LongIntHashMap(64);
+
+        /*
+         * The open set of the nodes owned by this worker
+         */
+        private final NodeHeap open = new NodeHeap();
+
+        /*
+         * The number of nodes stored
+         */
+        private int nodes;
+
+        /*
+         * The number of nodes expanded
+         */
+        private long expanded;
+
+        /*
+         * True while the worker has nodes to expand or batches to read
+         */
+        private boolean busy;
+
+        /**
+         * Creates a new worker
+         *
+         * @param index The index of the worker
+         */
+        Worker(int index) {
+            this.index = index;
+            this.outgoing = new Batch[workers.length];
+        }
+
+        /**
+         * Clears the nodes of the last path. The arrays are kept, so the next path does not create new arrays.
+         */
+        void reset() {
+            slots.clear();
+            open.clear();
+            inbox.clear();
+            Arrays.fill(outgoing, null);
+            nodes = 0;
+            expanded = 0;
+            busy = true;
+        }
+
+        /**
+         * Expands nodes and reads batches until every worker is done
+         */
+        @Override
+        public void run() {
+            while (!done) {
+                readInbox();
+
+                int count = 0;
+                while (count < ROUND_SIZE && !open.isEmpty()) {
+                    // nodes that can not lead to a shorter path are dropped, and so is every node after them
+                    if (open.peekF() >= getIncumbent()) {
+                        open.clear();
+                        break;
+                    }
+                    int current = open.poll();
+                    expanded++;
+                    count++;
+                    expand(current);
+                }
+                sendAll();
+
+                if (open.isEmpty() && inbox.isEmpty()) {
+                    // this worker is idle, the search is done when every worker is idle and no batches are on the way
+                    if (busy) {
+                        busy = false;
+                        if (work.decrementAndGet() == 0) done = true;
+                    }
+                    if (!done && inbox.isEmpty()) LockSupport.parkNanos(10_000);
+                }
+            }
+        }
+
+        /**
+         * Reads the batches sent to this worker
+         */
+        private void readInbox() {
+            for (Batch batch = inbox.poll(); batch != null; batch = inbox.poll()) {
+                // an idle worker becomes busy by taking over the count of the batch
+                if (busy) {
+                    work.decrementAndGet();
+                } else {
+                    busy = true;
+                }
+                for (int i = 0; i < batch.size; i++) {
+                    receive(batch.nodes[i], batch.parents[i], batch.costs[i], batch.depths[i]);
+                }
+            }
+        }
+
+        /**
+         * Visits the tiles next to a node
+         *
+         * @param slot The slot of the node
+         */
+        private void expand(int slot) {
+            long node = keys[slot];
+            int x = PathSearch.unpackX(node);
+            int y = PathSearch.unpackY(node);
+
+            if (grid != null) {
+                // the grid already knows which moves are blocked
+                int index = y * grid.width + x;
+                short[][] costs = grid.costs;
+                visit(slot, costs[CostGrid.LEFT][index], x - 1, y);
+                visit(slot, costs[CostGrid.UP][index], x, y - 1);
+                visit(slot, costs[CostGrid.DOWN][index], x, y + 1);
+                visit(slot, costs[CostGrid.RIGHT][index], x + 1, y);
+                return;
+            }
+
+            // loop through every nearby tile, diagonals are not allowed
+            visit(slot, x, y, x - 1, y);
+            visit(slot, x, y, x, y - 1);
+            visit(slot, x, y, x, y + 1);
+            visit(slot, x, y, x + 1, y);
+        }
+
+        /**
+         * Visits a neighbour of a node
+         *
+         * @param slot The slot of the node being expanded
+         * @param x    The x of the node being expanded
+         * @param y    The y of the node being expanded
+         * @param xp   The x of the neighbour
+         * @param yp   The y of the neighbour
+         */
+        private void visit(int slot, int x, int y, int xp, int yp) {
+            // Ignore if the next node is outside of the tileMap or solid
+            if (!isInside(xp, yp) || !map.isTraversable(entity, xp, yp)) return;
+
+            visit(slot, PathSearch.pack(xp, yp), map.getMovementCost(entity, x, y, xp, yp));
+        }
+
+        /**
+         * Visits a neighbour of a node with a cost from the cost grid
+         *
+         * @param slot The slot of the node being expanded
+         * @param cost The stored cost of the move, or CostGrid.BLOCKED
+         * @param xp   The x of the neighbour
+         * @param yp   The y of the neighbour
+         */
+        private void visit(int slot, short cost, int xp, int yp) {
+            if (cost == CostGrid.BLOCKED) return;
+            visit(slot, PathSearch.pack(xp, yp), cost * grid.scale);
+        }
+
+        /**
+         * Visits a neighbour of a node, or sends it to its owner
+         *
+         * @param slot The slot of the node being expanded
+         * @param node The packed coordinates of the neighbour
+         * @param cost The cost of moving from the node to the neighbour
+         */
+        private void visit(int slot, long node, float cost) {
+            float cost2 = g[slot] + cost;
+            int depth = depths[slot] + 1;
+            if (depth > maxSearchDistance || cost2 >= getIncumbent()) return;
+
+            int owner = ownerOf(node);
+            if (owner == index) {
+                receive(node, keys[slot], cost2, depth);
+                return;
+            }
+
+            Batch batch = outgoing[owner];
+            if (batch == null) batch = outgoing[owner] = new Batch();
+            batch.nodes[batch.size] = node;
+            batch.parents[batch.size] = keys[slot];
+            batch.costs[batch.size] = cost2;
+            batch.depths[batch.size] = depth;
+            if (++batch.size == BATCH_SIZE) send(owner);
+        }
+
+        /**
+         * Adds a node owned by this worker to the open set if this is the cheapest way to it found so far
+         *
+         * @param node   The packed coordinates of the node
+         * @param parent The packed coordinates of the parent
+         * @param cost   The cost from the source
+         * @param depth  The number of parents
+         */
+        void receive(long node, long parent, float cost, int depth) {
+            int slot = slots.get(node);
+            if (slot == NONE) {
+                slot = addNode(node, parent, cost, depth);
+            } else if (cost < g[slot]) {
+                g[slot] = cost;
+                parents[slot] = parent;
+                depths[slot] = depth;
+            } else {
+                return;
+            }
+
+            // a path to the target is not expanded, it only lowers the cost of the shortest path
+            if (node == target) {
+                offerIncumbent(cost);
+                return;
+            }
+            if (cost + h[slot] < getIncumbent()) open.add(slot, cost + h[slot], h[slot]);
+        }
+
+        /**
+         * Stores a new node
+         *
+         * @param node   The packed coordinates
+         * @param parent The packed coordinates of the parent
+         * @param cost   The cost from the source
+         * @param depth  The number of parents
+         * @return The slot of the node
+         */
+        private int addNode(long node, long parent, float cost, int depth) {
+            if (nodes == keys.length) {
+                int capacity = nodes * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                g = Arrays.copyOf(g, capacity);
+                h = Arrays.copyOf(h, capacity);
+                parents = Arrays.copyOf(parents, capacity);
+                depths = Arrays.copyOf(depths, capacity);
+            }
+            int slot = nodes++;
+            keys[slot] = node;
+            g[slot] = cost;
+            h[slot] = heuristic(node);
+            parents[slot] = parent;
+            depths[slot] = depth;
+            slots.put(node, slot);
+            return slot;
+        }
+
+        /**
+         * Sends every batch that is not empty
+         */
+        private void sendAll() {
+            for (int owner = 0; owner < outgoing.length; owner++) {
+                if (outgoing[owner] != null) send(owner);
+            }
+        }
+
+        /**
+         * Sends a batch to its owner. The count of the batch is added before the batch is sent, so the count
+         * never reaches 0 while the batch is on the way.
+         *
+         * @param owner The index of the owner
+         */
+        private void send(int owner) {
+            work.incrementAndGet();
+            workers[owner].inbox.add(outgoing[owner]);
+            outgoing[owner] = null;
+        }
+
+        /**
+         * Gets the parent of a node owned by this worker
+         *
+         * @param node The packed coordinates of the node
+         * @return The packed coordinates of the parent, or NO_PARENT for the source
+         */
+        long getParent(long node) {
+            return parents[slots.get(node)];
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package app.sagen.geometry.AStar;
+
+import app.sagen.geometry.MutableVector2D;
+
+import java.util.ArrayList;
+
+/**
+ * This class holds a path returned by an {@link AsyncPathfinder}, and whether it reaches the target.
+ * A search stopped early returns the path to the tile closest to the target, which is marked as partial.
+ *
+ * @author Sagen
+ */
+public class PathResult {
+
+    /*
+     * The path, or null if no path was found
+     */
+    private final ArrayList<MutableVector2D> path;
+
+    /*
+     * True if the path ends before the target
+     */
+    private final boolean partial;
+
+    /**
+     * Creates a new result
+     *
+     * @param path    The path, or null if no path was found
+     * @param partial True if the path ends before the target
+     */
+    public PathResult(ArrayList<MutableVector2D> path, boolean partial) {
+        this.path = path;
+        this.partial = partial;
+    }
+
+    /**
+     * Gets the path, as described in {@link PathSearch#getPath()}
+     *
+     * @return The path, or null if no path was found
+     */
+    public ArrayList<MutableVector2D> getPath() {
+        return path;
+    }
+
+    /**
+     * Returns true if the search was stopped before it reached the target, and the path only goes to the tile
+     * closest to the target, false if the path reaches the target or there is no path.
+     *
+     * @return True if the path is partial
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    /**
+     * Copies the result and its path, so the copy can be changed without changing this result
+     *
+     * @return The copy
+     */
+    public PathResult copy() {
+        if (path == null) return new PathResult(null, partial);
+        ArrayList<MutableVector2D> copy = new ArrayList<>(path.size());
+        for (MutableVector2D point : path) {
+            copy.add(point.clone());
+        }
+        return new PathResult(copy, partial);
+    }
+
+    @Override
+    public String toString() {
+        return "PathResult[path=" + path + ", partial=" + partial + "]";
+    }
+}
@@ -0,0 +1,124 @@
+package app.sagen.geometry.AStar;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Runs many path searches a little at a time, so no single tick spends more than a fixed time on pathfinding.
+ * Every call to {@link #tick(long)} gives the pending searches a slice of node expansions each, in turn,
+ * until the time budget is used. The next tick continues with the search after the last one, so every search
+ * gets its fair share no matter how hard the other searches are.
+ *
+ * @author Sagen
+ */
+public class PathScheduler {
+
+    /*
+     * The searches that are not done yet, in the order they get their next slice
+     */
+    private final ArrayDeque<Task<?>> pending = new ArrayDeque<>();
+
+    /*
+     * The number of node expansions a search gets each time it is its turn
+     */
+    private final int expansionsPerSlice;
+
+    /**
+     * Creates a new scheduler
+     *
+     * @param expansionsPerSlice The number of node expansions a search gets each time it is its turn
+     */
+    public PathScheduler(int expansionsPerSlice) {
+        if (expansionsPerSlice <= 0) throw new IllegalArgumentException("expansionsPerSlice must be positive");
+        this.expansionsPerSlice = expansionsPerSlice;
+    }
+
+    /**
+     * Adds a search to the scheduler
+     *
+     * @param search   The search, already started
+     * @param callback Called with the search when it is done
+     * @param <S>      The type of the search
+     */
+    public <S extends AbstractPathSearch> void submit(S search, Consumer<? super S> callback) {
+        Task<S> task = new Task<>(search, callback);
+        if (search.isDone()) {
+            task.complete();
+        } else {
+            pending.addLast(task);
+        }
+    }
+
+    /**
+     * Removes a search from the scheduler without calling its callback
+     *
+     * @param search The search to remove
+     * @return True if the search was pending, false if not.
+     */
+    public boolean cancel(AbstractPathSearch search) {
+        for (Iterator<Task<?>> iterator = pending.iterator(); iterator.hasNext(); ) {
+            if (iterator.next().search == search) {
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Continues the pending searches until the time budget is used or every search is done.
+     * A slice is never started after the budget is used, and a slice stops when the budget runs out.
+     *
+     * @param budgetNanos The max time to spend, in nanoseconds
+     * @return The number of searches that finished during this tick
+     */
+    public int tick(long budgetNanos) {
+        long start = System.nanoTime();
+        int finished = 0;
+        while (!pending.isEmpty()) {
+            long remaining = budgetNanos - (System.nanoTime() - start);
+            if (remaining <= 0) break;
+
+            // give the next search a slice, and put it back at the end if it is not done
+            Task<?> task = pending.pollFirst();
+            task.search.step(expansionsPerSlice, remaining);
+            if (task.search.isDone()) {
+                task.complete();
+                finished++;
+            } else {
+                pending.addLast(task);
+            }
+        }
+        return finished;
+    }
+
+    /**
+     * Gets the number of searches that are not done yet
+     *
+     * @return The number of pending searches
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * A search and the callback to call when it is done
+     *
+     * @param <S> The type of the search
+     */
+    private static final class Task<S extends AbstractPathSearch> {
+
+        private final S search;
+        private final Consumer<? super S> callback;
+
+        private Task(S search, Consumer<? super S> callback) {
+            this.search = search;
+            this.callback = callback;
+        }
+
+        private void complete() {
+            callback.accept(search);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package app.sagen.geometry.AStar;
+
+import app.sagen.geometry.MutableVector2D;
+
+import java.util.ArrayList;
+
+/**
+ * A resumable A* search between two tiles of a TileMap.
+ * Start a search with {@link #start(TileEntity, int, int, int, int, int)}, and continue it with
+ * {@link #step(int, long)} until it is done. The search can be reused for a new path once it is done.
+ * A search created with a {@link CostGrid} reads the costs from the arrays of the grid instead of the map.
+ *
+ * @author Sagen
+ */
+public class PathSearch extends AbstractPathSearch {
+
+    /*
+     * The TileMap used
+     */
+    private final TileMap map;
+
+    /*
+     * The cached costs, or null to read the costs from the map
+     */
+    private final CostGrid grid;
+
+    /*
+     * The entity to find a path for
+     */
+    private TileEntity entity;
+
+    /*
+     * The target x
+     */
+    private int tx;
+
+    /*
+     * The target y
+     */
+    private int ty;
+
+    /**
+     * Creates a new search
+     *
+     * @param map The TileMap to use
+     */
+    public PathSearch(TileMap map) {
+        this.map = map;
+        this.grid = null;
+    }
+
+    /**
+     * Creates a new search reading the costs from a cost grid.
+     * The profile of the grid is used for every entity.
+     *
+     * @param grid The cost grid to use
+     */
+    public PathSearch(CostGrid grid) {
+        this.map = grid;
+        this.grid = grid;
+    }
+
+    /**
+     * Starts a new search between two positions for an entity.
+     * If the source or target is outside the map, or the target is solid, the search is done at once without a path.
+     *
+     * @param entity            The entity to find a path for
+     * @param sx                The source x
+     * @param sy                The source y
+     * @param tx                The target x
+     * @param ty                The target y
+     * @param maxSearchDistance The max distance to search for a path
+     * @return This search
+     */
+    public PathSearch start(TileEntity entity, int sx, int sy, int tx, int ty, int maxSearchDistance) {
+        this.entity = entity;
+        this.tx = tx;
+        this.ty = ty;
+
+        // Ignore sources and targets outside the tileMap, and targets that are solid
+        if (!isInside(sx, sy) || !isInside(tx, ty) || !map.isTraversable(entity, tx, ty)) {
+            fail();
+            return this;
+        }
+
+        begin(pack(sx, sy), pack(tx, ty), maxSearchDistance);
+        return this;
+    }
+
+    /**
+     * Returns true if a tile is inside the map
+     *
+     * @param x The tile x
+     * @param y The tile y
+     * @return True if the tile is inside
+     */
+    private boolean isInside(int x, int y) {
+        return x >= 0 && y >= 0 && x < map.getWidth() && y < map.getHeight();
+    }
+
+    /**
+     * Visits the tiles next to a tile
+     *
+     * @param node The packed coordinates of the tile
+     * @param slot The slot of the tile
+     */
+    @Override
+    protected void expand(long node, int slot) {
+        int x = unpackX(node);
+        int y = unpackY(node);
+
+        if (grid != null) {
+            // the grid already knows which moves are blocked
+            int index = y * grid.width + x;
+            short[][] costs = grid.costs;
+            relax(slot, costs[CostGrid.LEFT][index], x - 1, y);
+            relax(slot, costs[CostGrid.UP][index], x, y - 1);
+            relax(slot, costs[CostGrid.DOWN][index], x, y + 1);
+            relax(slot, costs[CostGrid.RIGHT][index], x + 1, y);
+            return;
+        }
+
+        // loop through every nearby tile, diagonals are not allowed
+        relax(slot, x, y, x - 1, y);
+        relax(slot, x, y, x, y - 1);
+        relax(slot, x, y, x, y + 1);
+        relax(slot, x, y, x + 1, y);
+    }
+
+    /**
+     * Visits a neighbour of a tile
+     *
+     * @param slot The slot of the tile being expanded
+     * @param x    The x of the tile being expanded
+     * @param y    The y of the tile being expanded
+     * @param xp   The x of the neighbour
+     * @param yp   The y of the neighbour
+     */
+    private void relax(int slot, int x, int y, int xp, int yp) {
+        // Ignore if the next node is outside of the tileMap or solid
+        if (!isInside(xp, yp) || !map.isTraversable(entity, xp, yp)) return;
+
+        relax(slot, pack(xp, yp), map.getMovementCost(entity, x, y, xp, yp));
+    }
+
+    /**
+     * Visits a neighbour of a tile with a cost from the cost grid
+     *
+     * @param slot The slot of the tile being expanded
+     * @param cost The stored cost of the move, or CostGrid.BLOCKED
+     * @param xp   The x of the neighbour
+     * @param yp   The y of the neighbour
+     */
+    private void relax(int slot, short cost, int xp, int yp) {
+        if (cost == CostGrid.BLOCKED) return;
+        relax(slot, pack(xp, yp), cost * grid.scale);
+    }
+
+    /**
+     * Estimates the cost from a tile to the target
+     *
+     * @param node The packed coordinates of the tile
+     * @return The straight line distance to the target
+     */
+    @Override
+    protected float heuristic(long node) {
+        // Heuristics calculated by finding the shortest possible path to the target from the node
+        // h = sqrt(dx^2 + dy^2)
+        float dx = tx - unpackX(node);
+        float dy = ty - unpackY(node);
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Builds the path to the target.
+     * The path goes from the target to the source, through the point between every pair of tiles on the way.
+     *
+     * @return The path, or null if the search has not found a path
+     */
+    public ArrayList<MutableVector2D> getPath() {
+        if (getStatus() != SearchStatus.FOUND) return null;
+        return buildPath(getTargetSlot());
+    }
+
+    /**
+     * Builds the path to the visited tile closest to the target.
+     * This can be used while the search is still running, or when no full path was found, to start moving in the
+     * right direction. If the search has found a path, this is the same as {@link #getPath()}.
+     *
+     * @return The path, or null if no tile has been visited
+     */
+    public ArrayList<MutableVector2D> getPartialPath() {
+        if (getStatus() == SearchStatus.FOUND) return getPath();
+        int closest = getClosestSlot();
+        return closest == NONE ? null : buildPath(closest);
+    }
+
+    /**
+     * Builds the path from a node back to the source
+     *
+     * @param slot The slot of the last node
+     * @return The path
+     */
+    private ArrayList<MutableVector2D> buildPath(int slot) {
+        // Calculate point between every node for a smoother path
+        ArrayList<MutableVector2D> path = new ArrayList<>();
+        for (int parent = getParent(slot); parent != NONE; slot = parent, parent = getParent(slot)) {
+            long current = getNode(slot);
+            long next = getNode(parent);
+            path.add(new MutableVector2D(
+                    (unpackX(current) + unpackX(next)) / 2.0 + .5,
+                    (unpackY(current) + unpackY(next)) / 2.0 + .5));
+        }
+        return path;
+    }
+
+    /**
+     * Packs the coordinates of a tile into a long
+     *
+     * @param x The tile x
+     * @param y The tile y
+     * @return The packed coordinates
+     */
+    public static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    /**
+     * Gets the x from packed coordinates
+     *
+     * @param node The packed coordinates
+     * @return The tile x
+     */
+    public static int unpackX(long node) {
+        return (int) (node >> 32);
+    }
+
+    /**
+     * Gets the y from packed coordinates
+     *
+     * @param node The packed coordinates
+     * @return The tile y
+     */
+    public static int unpackY(long node) {
+        return (int) node;
+    }
+}
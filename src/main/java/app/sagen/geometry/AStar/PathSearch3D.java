@@ -0,0 +1,255 @@
+package app.sagen.geometry.AStar;
+
+import app.sagen.geometry.Vector3D;
+
+import java.util.ArrayList;
+
+/**
+ * A resumable A* search between two tiles of a TileMap3D.
+ * Only the tiles the search visits are stored, so large volumes can be searched without creating anything for
+ * every tile. A diagonal move is only allowed when the straight moves it is made of are not blocked, so paths
+ * never cut through the edge or corner of a solid tile.<br>
+ * Coordinates are packed 21 bits each, so they must be between 0 and {@value #MAX_COORDINATE}.
+ *
+ * @author Sagen
+ */
+public class PathSearch3D extends AbstractPathSearch {
+
+    /**
+     * The largest coordinate along any axis
+     */
+    public static final int MAX_COORDINATE = (1 << 21) - 1;
+
+    /*
+     * The TileMap used
+     */
+    private final TileMap3D map;
+
+    /*
+     * The tiles a path can move to from a tile
+     */
+    private final Neighbourhood3D neighbourhood;
+
+    /*
+     * The entity to find a path for
+     */
+    private TileEntity entity;
+
+    /*
+     * The target x
+     */
+    private int tx;
+
+    /*
+     * The target y
+     */
+    private int ty;
+
+    /*
+     * The target z
+     */
+    private int tz;
+
+    /**
+     * Creates a new search moving to the 26 tiles around a tile
+     *
+     * @param map The TileMap to use
+     */
+    public PathSearch3D(TileMap3D map) {
+        this(map, Neighbourhood3D.CORNERS);
+    }
+
+    /**
+     * Creates a new search
+     *
+     * @param map           The TileMap to use
+     * @param neighbourhood The tiles a path can move to from a tile
+     */
+    public PathSearch3D(TileMap3D map, Neighbourhood3D neighbourhood) {
+        this.map = map;
+        this.neighbourhood = neighbourhood;
+    }
+
+    /**
+     * Starts a new search between two positions for an entity.
+     * If the source or target is outside the map, or the target is solid, the search is done at once without a path.
+     *
+     * @param entity            The entity to find a path for
+     * @param sx                The source x
+     * @param sy                The source y
+     * @param sz                The source z
+     * @param tx                The target x
+     * @param ty                The target y
+     * @param tz                The target z
+     * @param maxSearchDistance The max distance to search for a path
+     * @return This search
+     */
+    public PathSearch3D start(TileEntity entity, int sx, int sy, int sz, int tx, int ty, int tz, int maxSearchDistance) {
+        this.entity = entity;
+        this.tx = tx;
+        this.ty = ty;
+        this.tz = tz;
+
+        // Ignore sources and targets outside the tileMap, and targets that are solid
+        if (!isInside(sx, sy, sz) || !isInside(tx, ty, tz) || !map.isTraversable(entity, tx, ty, tz)) {
+            fail();
+            return this;
+        }
+
+        begin(pack(sx, sy, sz), pack(tx, ty, tz), maxSearchDistance);
+        return this;
+    }
+
+    /**
+     * Returns true if a tile is inside the map
+     *
+     * @param x The tile x
+     * @param y The tile y
+     * @param z The tile z
+     * @return True if the tile is inside
+     */
+    private boolean isInside(int x, int y, int z) {
+        return x >= 0 && y >= 0 && z >= 0 && x < map.getWidth() && y < map.getHeight() && z < map.getDepth()
+                && x <= MAX_COORDINATE && y <= MAX_COORDINATE && z <= MAX_COORDINATE;
+    }
+
+    /**
+     * Returns true if a tile is inside the map and traversable
+     *
+     * @param x The tile x
+     * @param y The tile y
+     * @param z The tile z
+     * @return True if the tile can be moved to
+     */
+    private boolean isOpen(int x, int y, int z) {
+        return isInside(x, y, z) && map.isTraversable(entity, x, y, z);
+    }
+
+    /**
+     * Visits the tiles next to a tile
+     *
+     * @param node The packed coordinates of the tile
+     * @param slot The slot of the tile
+     */
+    @Override
+    protected void expand(long node, int slot) {
+        int x = unpackX(node);
+        int y = unpackY(node);
+        int z = unpackZ(node);
+
+        int[] dx = neighbourhood.dx;
+        int[] dy = neighbourhood.dy;
+        int[] dz = neighbourhood.dz;
+        float[] length = neighbourhood.length;
+        for (int i = 0; i < dx.length; i++) {
+            int xp = x + dx[i];
+            int yp = y + dy[i];
+            int zp = z + dz[i];
+
+            // Ignore if the next node is outside of the tileMap or solid
+            if (!isOpen(xp, yp, zp)) continue;
+
+            // Ignore diagonal moves past solid tiles
+            if (length[i] > 1 && ((dx[i] != 0 && !isOpen(xp, y, z)) || (dy[i] != 0 && !isOpen(x, yp, z))
+                    || (dz[i] != 0 && !isOpen(x, y, zp)))) continue;
+
+            relax(slot, pack(xp, yp, zp), map.getMovementCost(entity, x, y, z, xp, yp, zp) * length[i]);
+        }
+    }
+
+    /**
+     * Estimates the cost from a tile to the target
+     *
+     * @param node The packed coordinates of the tile
+     * @return The length of the shortest path to the target if there were no solid tiles
+     */
+    @Override
+    protected float heuristic(long node) {
+        return neighbourhood.distance(tx - unpackX(node), ty - unpackY(node), tz - unpackZ(node));
+    }
+
+    /**
+     * Builds the path to the target.
+     * The path goes from the target to the source, through the point between every pair of tiles on the way.
+     *
+     * @return The path, or null if the search has not found a path
+     */
+    public ArrayList<Vector3D> getPath() {
+        if (getStatus() != SearchStatus.FOUND) return null;
+        return buildPath(getTargetSlot());
+    }
+
+    /**
+     * Builds the path to the visited tile closest to the target.
+     * If the search has found a path, this is the same as {@link #getPath()}.
+     *
+     * @return The path, or null if no tile has been visited
+     */
+    public ArrayList<Vector3D> getPartialPath() {
+        if (getStatus() == SearchStatus.FOUND) return getPath();
+        int closest = getClosestSlot();
+        return closest == NONE ? null : buildPath(closest);
+    }
+
+    /**
+     * Builds the path from a node back to the source
+     *
+     * @param slot The slot of the last node
+     * @return The path
+     */
+    private ArrayList<Vector3D> buildPath(int slot) {
+        // Calculate point between every node for a smoother path
+        ArrayList<Vector3D> path = new ArrayList<>();
+        for (int parent = getParent(slot); parent != NONE; slot = parent, parent = getParent(slot)) {
+            long current = getNode(slot);
+            long next = getNode(parent);
+            path.add(new Vector3D(
+                    (unpackX(current) + unpackX(next)) / 2.0 + .5,
+                    (unpackY(current) + unpackY(next)) / 2.0 + .5,
+                    (unpackZ(current) + unpackZ(next)) / 2.0 + .5));
+        }
+        return path;
+    }
+
+    /**
+     * Packs the coordinates of a tile into a long
+     *
+     * @param x The tile x
+     * @param y The tile y
+     * @param z The tile z
+     * @return The packed coordinates
+     */
+    public static long pack(int x, int y, int z) {
+        return ((long) (x & MAX_COORDINATE) << 42) | ((long) (y & MAX_COORDINATE) << 21) | (z & MAX_COORDINATE);
+    }
+
+    /**
+     * Gets the x from packed coordinates
+     *
+     * @param node The packed coordinates
+     * @return The tile x
+     */
+    public static int unpackX(long node) {
+        return (int) (node >>> 42) & MAX_COORDINATE;
+    }
+
+    /**
+     * Gets the y from packed coordinates
+     *
+     * @param node The packed coordinates
+     * @return The tile y
+     */
+    public static int unpackY(long node) {
+        return (int) (node >>> 21) & MAX_COORDINATE;
+    }
+
+    /**
+     * Gets the z from packed coordinates
+     *
+     * @param node The packed coordinates
+     * @return The tile z
+     */
+    public static int unpackZ(long node) {
+        return (int) node & MAX_COORDINATE;
+    }
+}
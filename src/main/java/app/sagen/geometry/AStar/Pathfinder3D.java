@@ -0,0 +1,93 @@
+package app.sagen.geometry.AStar;
+
+import app.sagen.geometry.Vector3D;
+
+import java.util.ArrayList;
+
+/**
+ * The 3D version of {@link Pathfinder}, using the A* algorithm to find the shortest path between two tiles of a
+ * TileMap3D.<br>
+ * See https://en.wikipedia.org/wiki/A*_search_algorithm
+ *
+ * @author Sagen
+ */
+public class Pathfinder3D {
+
+    /**
+     * The TileMap used
+     */
+    private TileMap3D map;
+
+    /**
+     * The tiles a path can move to from a tile
+     */
+    private Neighbourhood3D neighbourhood;
+
+    /**
+     * The search reused for every call to findPath
+     */
+    private PathSearch3D search;
+
+    /**
+     * Creates a new instance of the class, moving to the 26 tiles around a tile
+     *
+     * @param map The TileMap to use
+     */
+    public Pathfinder3D(TileMap3D map) {
+        this(map, Neighbourhood3D.CORNERS);
+    }
+
+    /**
+     * Creates a new instance of the class
+     *
+     * @param map           The TileMap to use
+     * @param neighbourhood The tiles a path can move to from a tile
+     */
+    public Pathfinder3D(TileMap3D map, Neighbourhood3D neighbourhood) {
+        this.map = map;
+        this.neighbourhood = neighbourhood;
+        this.search = new PathSearch3D(map, neighbourhood);
+    }
+
+    /**
+     * Calculates a path between two positions for an entity
+     *
+     * @param entity            The entity to find a path for
+     * @param sx                The source x
+     * @param sy                The source y
+     * @param sz                The source z
+     * @param tx                The target x
+     * @param ty                The target y
+     * @param tz                The target z
+     * @param maxSearchDistance The max distance to search for a path
+     * @return The path
+     */
+    public ArrayList<Vector3D> findPath(TileEntity entity, int sx, int sy, int sz, int tx, int ty, int tz, int maxSearchDistance) {
+        // The target node has no parent when it is the source, so there is no path to it
+        if (sx == tx && sy == ty && sz == tz) {
+            return null;
+        }
+
+        search.start(entity, sx, sy, sz, tx, ty, tz, maxSearchDistance).run();
+        return search.getPath();
+    }
+
+    /**
+     * Starts a new search between two positions for an entity, without running it.
+     * The search can be continued a little at a time with {@link PathSearch3D#step(int, long)},
+     * or given to a {@link PathScheduler} to spread it over several ticks.
+     *
+     * @param entity            The entity to find a path for
+     * @param sx                The source x
+     * @param sy                The source y
+     * @param sz                The source z
+     * @param tx                The target x
+     * @param ty                The target y
+     * @param tz                The target z
+     * @param maxSearchDistance The max distance to search for a path
+     * @return The search
+     */
+    public PathSearch3D startSearch(TileEntity entity, int sx, int sy, int sz, int tx, int ty, int tz, int maxSearchDistance) {
+        return new PathSearch3D(map, neighbourhood).start(entity, sx, sy, sz, tx, ty, tz, maxSearchDistance);
+    }
+}
@@ -0,0 +1,211 @@
+package app.sagen.geometry.AStar;
+
+import java.util.Arrays;
+
+/**
+ * Remembers which agent is standing on which tile at which time, so agents can plan paths that do not collide.
+ * A reservation is stored under the tile and time packed into a long, in a primitive hash map, so no objects are
+ * created per reservation.<br>
+ * Times are counted in ticks from when the paths were planned. Tile coordinates must be between 0 and
+ * {@value #MAX_COORDINATE}, and times between 0 and {@value #MAX_TIME}.
+ *
+ * @author Sagen
+ */
+public class ReservationTable {
+
+    /**
+     * The largest tile coordinate that can be reserved
+     */
+    public static final int MAX_COORDINATE = (1 << 24) - 1;
+
+    /**
+     * The largest time that can be reserved
+     */
+    public static final int MAX_TIME = (1 << 15) - 1;
+
+    /**
+     * The agent of a free tile
+     */
+    public static final int FREE = -1;
+
+    /*
+     * The agent of every reserved tile and time
+     */
+    private final LongIntHashMap reservations = new LongIntHashMap(256);
+
+    /*
+     * The keys reserved by every agent, so they can be released
+     */
+    private long[][] agentKeys = new long[8][];
+
+    /*
+     * The number of keys reserved by every agent
+     */
+    private int[] agentKeyCounts = new int[8];
+
+    /**
+     * Reserves a tile at a time for an agent. A reservation by another agent is replaced.
+     *
+     * @param x     The tile x
+     * @param y     The tile y
+     * @param t     The time
+     * @param agent The agent, from 0
+     */
+    public void reserve(int x, int y, int t, int agent) {
+        if (agent < 0) throw new IllegalArgumentException("agent must not be negative");
+        long key = pack(x, y, t);
+        reservations.put(key, agent);
+
+        // remember the key so the agent can release it later
+        if (agent >= agentKeys.length) {
+            int capacity = Math.max(agent + 1, agentKeys.length * 2);
+            agentKeys = Arrays.copyOf(agentKeys, capacity);
+            agentKeyCounts = Arrays.copyOf(agentKeyCounts, capacity);
+        }
+        long[] keys = agentKeys[agent];
+        int count = agentKeyCounts[agent];
+        if (keys == null) {
+            keys = agentKeys[agent] = new long[16];
+        } else if (count == keys.length) {
+            keys = agentKeys[agent] = Arrays.copyOf(keys, count * 2);
+        }
+        keys[count] = key;
+        agentKeyCounts[agent] = count + 1;
+    }
+
+    /**
+     * Reserves a tile for an agent over a range of times
+     *
+     * @param x     The tile x
+     * @param y     The tile y
+     * @param from  The first time
+     * @param to    The last time
+     * @param agent The agent
+     */
+    public void reserve(int x, int y, int from, int to, int agent) {
+        for (int t = from; t <= to; t++) {
+            reserve(x, y, t, agent);
+        }
+    }
+
+    /**
+     * Gets the agent that has reserved a tile at a time
+     *
+     * @param x The tile x
+     * @param y The tile y
+     * @param t The time
+     * @return The agent, or FREE if the tile is not reserved
+     */
+    public int getAgent(int x, int y, int t) {
+        return reservations.get(pack(x, y, t));
+    }
+
+    /**
+     * Returns true if an agent can stand on a tile at a time, false if another agent has reserved it.
+     *
+     * @param x     The tile x
+     * @param y     The tile y
+     * @param t     The time
+     * @param agent The agent
+     * @return True if the tile is free or reserved by the agent
+     */
+    public boolean isFree(int x, int y, int t, int agent) {
+        int other = reservations.get(pack(x, y, t));
+        return other == FREE || other == agent;
+    }
+
+    /**
+     * Returns true if an agent can move between two tiles from one time to the next, false if the tile moved to
+     * is reserved by another agent or another agent moves the opposite way at the same time.
+     *
+     * @param agent The agent
+     * @param sx    The x of the tile moved from
+     * @param sy    The y of the tile moved from
+     * @param tx    The x of the tile moved to
+     * @param ty    The y of the tile moved to
+     * @param t     The time the move starts
+     * @return True if the move does not collide
+     */
+    public boolean canMove(int agent, int sx, int sy, int tx, int ty, int t) {
+        int other = reservations.get(pack(tx, ty, t + 1));
+        if (other != FREE && other != agent) return false;
+
+        // two agents can not swap tiles, they would pass through each other
+        other = reservations.get(pack(tx, ty, t));
+        return other == FREE || other == agent || reservations.get(pack(sx, sy, t + 1)) != other;
+    }
+
+    /**
+     * Removes every reservation of an agent
+     *
+     * @param agent The agent
+     */
+    public void release(int agent) {
+        if (agent < 0 || agent >= agentKeys.length || agentKeys[agent] == null) return;
+        long[] keys = agentKeys[agent];
+        for (int i = 0, count = agentKeyCounts[agent]; i < count; i++) {
+            // the reservation may have been replaced by another agent
+            if (reservations.get(keys[i]) == agent) reservations.remove(keys[i]);
+        }
+        agentKeyCounts[agent] = 0;
+    }
+
+    /**
+     * Removes every reservation
+     */
+    public void clear() {
+        reservations.clear();
+        Arrays.fill(agentKeyCounts, 0);
+    }
+
+    /**
+     * Calculates the number of reservations
+     *
+     * @return The number of reserved tiles and times
+     */
+    public int size() {
+        return reservations.size();
+    }
+
+    /**
+     * Packs a tile and a time into a long. The result is never negative.
+     *
+     * @param x The tile x
+     * @param y The tile y
+     * @param t The time
+     * @return The packed tile and time
+     */
+    public static long pack(int x, int y, int t) {
+        return ((long) (x & MAX_COORDINATE) << 39) | ((long) (y & MAX_COORDINATE) << 15) | (t & MAX_TIME);
+    }
+
+    /**
+     * Gets the x from a packed tile and time
+     *
+     * @param key The packed tile and time
+     * @return The tile x
+     */
+    public static int unpackX(long key) {
+        return (int) (key >>> 39) & MAX_COORDINATE;
+    }
+
+    /**
+     * Gets the y from a packed tile and time
+     *
+     * @param key The packed tile and time
+     * @return The tile y
+     */
+    public static int unpackY(long key) {
+        return (int) (key >>> 15) & MAX_COORDINATE;
+    }
+
+    /**
+     * Gets the time from a packed tile and time
+     *
+     * @param key The packed tile and time
+     * @return The time
+     */
+    public static int unpackT(long key) {
+        return (int) key & MAX_TIME;
+    }
+}
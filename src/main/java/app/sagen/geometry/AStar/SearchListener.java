@@ -0,0 +1,42 @@
+package app.sagen.geometry.AStar;
+
+/**
+ * Receives events from a running path search, for example to draw the searched area or to collect statistics.
+ * Nodes are given by their packed coordinates, which can be unpacked with the methods of the search.
+ * Every method does nothing by default, so only the events of interest have to be implemented.
+ *
+ * @author Sagen
+ */
+public interface SearchListener {
+
+    /**
+     * Called when a node is added to the open set, or when a cheaper way to it is found
+     *
+     * @param search The search
+     * @param node   The packed coordinates of the node
+     * @param g      The cost from the source to the node
+     * @param h      The estimated cost from the node to the target
+     */
+    default void nodeOpened(AbstractPathSearch search, long node, float g, float h) {
+    }
+
+    /**
+     * Called when a node is removed from the open set and its neighbours are visited
+     *
+     * @param search The search
+     * @param node   The packed coordinates of the node
+     * @param g      The cost from the source to the node
+     * @param h      The estimated cost from the node to the target
+     */
+    default void nodeExpanded(AbstractPathSearch search, long node, float g, float h) {
+    }
+
+    /**
+     * Called once when the search finishes
+     *
+     * @param search The search
+     * @param status The final status, either FOUND or NOT_FOUND
+     */
+    default void searchFinished(AbstractPathSearch search, SearchStatus status) {
+    }
+}
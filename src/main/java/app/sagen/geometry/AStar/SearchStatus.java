@@ -0,0 +1,24 @@
+package app.sagen.geometry.AStar;
+
+/**
+ * The state of a path search
+ *
+ * @author Sagen
+ */
+public enum SearchStatus {
+
+    /**
+     * The search has not finished yet, and can be continued
+     */
+    SEARCHING,
+
+    /**
+     * The search has finished and found a path to the target
+     */
+    FOUND,
+
+    /**
+     * The search has finished without finding a path to the target
+     */
+    NOT_FOUND
+}
@@ -0,0 +1,294 @@
+package app.sagen.geometry.AStar;
+
+import app.sagen.geometry.MutableVector2D;
+
+import java.util.ArrayList;
+
+/**
+ * A resumable A* search through space and time, that avoids the tiles other agents have reserved.
+ * Every node is a tile at a time, and every move takes one tick, also waiting on the same tile. The search only
+ * looks a fixed number of ticks ahead, the window. A path is found when the agent reaches the target and can stay
+ * there until the end of the window, or when it reaches the end of the window, from where the rest of the way is
+ * only estimated. This is the windowed hierarchical cooperative A* (WHCA*) by David Silver.<br>
+ * See https://www.aaai.org/Papers/AIIDE/2005/AIIDE05-020.pdf
+ *
+ * @author Sagen
+ */
+public class SpaceTimeSearch extends AbstractPathSearch {
+
+    /*
+     * The TileMap used
+     */
+    private final TileMap map;
+
+    /*
+     * The reservations of the other agents
+     */
+    private final ReservationTable table;
+
+    /*
+     * The cost of waiting on a tile for a tick
+     */
+    private float waitCost = 1;
+
+    /*
+     * The entity to find a path for
+     */
+    private TileEntity entity;
+
+    /*
+     * The agent to find a path for
+     */
+    private int agent;
+
+    /*
+     * The target x
+     */
+    private int tx;
+
+    /*
+     * The target y
+     */
+    private int ty;
+
+    /*
+     * The number of ticks to look ahead
+     */
+    private int window;
+
+    /**
+     * Creates a new search
+     *
+     * @param map   The TileMap to use
+     * @param table The reservations of the other agents
+     */
+    public SpaceTimeSearch(TileMap map, ReservationTable table) {
+        this.map = map;
+        this.table = table;
+    }
+
+    /**
+     * Sets the cost of waiting on a tile for a tick
+     *
+     * @param waitCost The cost of waiting, 1 by default
+     */
+    public void setWaitCost(float waitCost) {
+        if (!(waitCost >= 0)) throw new IllegalArgumentException("waitCost must not be negative");
+        this.waitCost = waitCost;
+    }
+
+    /**
+     * Starts a new search between two positions for an agent, from time 0.
+     * If the source or target is outside the map, or the target is solid, the search is done at once without a path.
+     *
+     * @param entity The entity to find a path for
+     * @param agent  The agent of the entity in the reservation table
+     * @param sx     The source x
+     * @param sy     The source y
+     * @param tx     The target x
+     * @param ty     The target y
+     * @param window The number of ticks to look ahead
+     * @return This search
+     */
+    public SpaceTimeSearch start(TileEntity entity, int agent, int sx, int sy, int tx, int ty, int window) {
+        if (window <= 0 || window >= ReservationTable.MAX_TIME) {
+            throw new IllegalArgumentException("window must be between 1 and " + (ReservationTable.MAX_TIME - 1));
+        }
+        this.entity = entity;
+        this.agent = agent;
+        this.tx = tx;
+        this.ty = ty;
+        this.window = window;
+
+        // Ignore sources and targets outside the tileMap, and targets that are solid
+        if (!isInside(sx, sy) || !isInside(tx, ty) || !map.isTraversable(entity, tx, ty)) {
+            fail();
+            return this;
+        }
+
+        // the target is never visited at this time, the search ends in isTarget instead
+        begin(ReservationTable.pack(sx, sy, 0), ReservationTable.pack(tx, ty, ReservationTable.MAX_TIME), Integer.MAX_VALUE);
+        return this;
+    }
+
+    /**
+     * Returns true if a tile is inside the map
+     *
+     * @param x The tile x
+     * @param y The tile y
+     * @return True if the tile is inside
+     */
+    private boolean isInside(int x, int y) {
+        return x >= 0 && y >= 0 && x < map.getWidth() && y < map.getHeight() && x <= ReservationTable.MAX_COORDINATE
+                && y <= ReservationTable.MAX_COORDINATE;
+    }
+
+    /**
+     * Returns true if the node is at the end of the window, or at the target with no other agent passing through
+     * the target before the end of the window.
+     *
+     * @param node The packed tile and time
+     * @return True if the search should stop at the node
+     */
+    @Override
+    protected boolean isTarget(long node) {
+        int t = ReservationTable.unpackT(node);
+        if (t >= window) return true;
+        if (ReservationTable.unpackX(node) != tx || ReservationTable.unpackY(node) != ty) return false;
+
+        // the agent has to stay on the target, so nobody else can use it later
+        return canStay(tx, ty, t);
+    }
+
+    /**
+     * Returns true if no other agent has reserved a tile from a time until the end of the window
+     *
+     * @param x The tile x
+     * @param y The tile y
+     * @param t The time the agent arrives on the tile
+     * @return True if the agent can stay on the tile
+     */
+    private boolean canStay(int x, int y, int t) {
+        for (int later = t + 1; later <= window; later++) {
+            if (!table.isFree(x, y, later, agent)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Visits the tiles next to a tile at the next tick, and the same tile for waiting
+     *
+     * @param node The packed tile and time
+     * @param slot The slot of the node
+     */
+    @Override
+    protected void expand(long node, int slot) {
+        int x = ReservationTable.unpackX(node);
+        int y = ReservationTable.unpackY(node);
+        int t = ReservationTable.unpackT(node);
+
+        // wait on the tile
+        if (table.canMove(agent, x, y, x, y, t)) relax(slot, ReservationTable.pack(x, y, t + 1), waitCost);
+
+        // loop through every nearby tile, diagonals are not allowed
+        relax(slot, x, y, t, x - 1, y);
+        relax(slot, x, y, t, x, y - 1);
+        relax(slot, x, y, t, x, y + 1);
+        relax(slot, x, y, t, x + 1, y);
+    }
+
+    /**
+     * Visits a neighbour of a tile at the next tick
+     *
+     * @param slot The slot of the node being expanded
+     * @param x    The x of the tile being expanded
+     * @param y    The y of the tile being expanded
+     * @param t    The time of the node being expanded
+     * @param xp   The x of the neighbour
+     * @param yp   The y of the neighbour
+     */
+    private void relax(int slot, int x, int y, int t, int xp, int yp) {
+        // Ignore if the next node is outside of the tileMap, solid or reserved
+        if (!isInside(xp, yp) || !map.isTraversable(entity, xp, yp) || !table.canMove(agent, x, y, xp, yp, t)) return;
+
+        relax(slot, ReservationTable.pack(xp, yp, t + 1), map.getMovementCost(entity, x, y, xp, yp));
+    }
+
+    /**
+     * Estimates the cost from a tile to the target
+     *
+     * @param node The packed tile and time
+     * @return The straight line distance to the target
+     */
+    @Override
+    protected float heuristic(long node) {
+        // h = sqrt(dx^2 + dy^2), the reservations are ignored
+        float dx = tx - ReservationTable.unpackX(node);
+        float dy = ty - ReservationTable.unpackY(node);
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Builds the path found.
+     * The path goes from the last tick to the first, through the center of the tile the agent stands on at every
+     * tick after the source. A tile is repeated when the agent waits.
+     *
+     * @return The path, or null if the search has not found a path
+     */
+    public ArrayList<MutableVector2D> getPath() {
+        if (getStatus() != SearchStatus.FOUND) return null;
+        return buildPath(getTargetSlot());
+    }
+
+    /**
+     * Builds the path to the visited node closest to the target where the agent can stay until the end of the
+     * window, the same way a path ends at the target. If no such node has been visited, the path goes to the visited
+     * node closest to the target. If the search has found a path, this is the same as {@link #getPath()}.
+     *
+     * @return The path, or null if no node has been visited
+     */
+    public ArrayList<MutableVector2D> getPartialPath() {
+        int slot = getEndSlot();
+        return slot == NONE ? null : buildPath(slot);
+    }
+
+    /**
+     * Reserves the tiles of the path from {@link #getPartialPath()} for the agent, including the source at time 0.
+     * The agent keeps the last tile of the path until the end of the window, unless another agent has reserved it.
+     *
+     * @return True if anything was reserved, false if no node has been visited
+     */
+    public boolean reservePath() {
+        int slot = getEndSlot();
+        if (slot == NONE) return false;
+
+        long last = getNode(slot);
+        int x = ReservationTable.unpackX(last);
+        int y = ReservationTable.unpackY(last);
+        for (int t = ReservationTable.unpackT(last) + 1; t <= window && table.isFree(x, y, t, agent); t++) {
+            table.reserve(x, y, t, agent);
+        }
+        for (; slot != NONE; slot = getParent(slot)) {
+            long node = getNode(slot);
+            table.reserve(ReservationTable.unpackX(node), ReservationTable.unpackY(node), ReservationTable.unpackT(node), agent);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the slot of the end of the path. If no path was found, this is the visited node closest to the target
+     * where the agent can stay until the end of the window, or the node closest to the target if there is none.
+     *
+     * @return The slot, or NONE if no node has been visited
+     */
+    private int getEndSlot() {
+        if (getStatus() == SearchStatus.FOUND) return getTargetSlot();
+
+        int best = NONE;
+        float bestH = 0;
+        for (int slot = 0, count = getVisitedCount(); slot < count; slot++) {
+            long node = getNode(slot);
+            float h = heuristic(node);
+            if (best != NONE && (h > bestH || (h == bestH && getCost(slot) >= getCost(best)))) continue;
+            if (!canStay(ReservationTable.unpackX(node), ReservationTable.unpackY(node), ReservationTable.unpackT(node))) continue;
+            best = slot;
+            bestH = h;
+        }
+        return best != NONE ? best : getClosestSlot();
+    }
+
+    /**
+     * Builds the path from a node back to the source
+     *
+     * @param slot The slot of the last node
+     * @return The path
+     */
+    private ArrayList<MutableVector2D> buildPath(int slot) {
+        ArrayList<MutableVector2D> path = new ArrayList<>();
+        for (; getParent(slot) != NONE; slot = getParent(slot)) {
+            long node = getNode(slot);
+            path.add(new MutableVector2D(ReservationTable.unpackX(node) + .5, ReservationTable.unpackY(node) + .5));
+        }
+        return path;
+    }
+}
@@ -0,0 +1,32 @@
+package app.sagen.geometry.AStar;
+
+/**
+ * A 3D grid of tiles for {@link PathSearch3D}, the 3D version of {@link TileMap}
+ *
+ * @author Sagen
+ */
+public interface TileMap3D {
+
+    int getWidth();
+
+    int getHeight();
+
+    int getDepth();
+
+    boolean isTraversable(TileEntity entity, int x, int y, int z);
+
+    /**
+     * Gets the cost of moving between two tiles next to each other. The cost is multiplied by the length of the
+     * move, so a diagonal move costs more than a straight move with the same cost.
+     *
+     * @param entity The entity moving
+     * @param sx     The x of the tile moved from
+     * @param sy     The y of the tile moved from
+     * @param sz     The z of the tile moved from
+     * @param tx     The x of the tile moved to
+     * @param ty     The y of the tile moved to
+     * @param tz     The z of the tile moved to
+     * @return The cost of a move with a length of 1, at least 1
+     */
+    float getMovementCost(TileEntity entity, int sx, int sy, int sz, int tx, int ty, int tz);
+}
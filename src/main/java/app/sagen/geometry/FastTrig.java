@@ -0,0 +1,71 @@
+package app.sagen.geometry;
+
+/**
+ * Approximate sine and cosine calculated from a lookup table.
+ * The values between the entries of the table are linearly interpolated, so the error is never larger than
+ * {@link #MAX_ERROR}. This is faster than Math.sin and Math.cos, and good enough for steering and animation.
+ *
+ * @author Sagen
+ */
+public final class FastTrig {
+
+    /**
+     * The largest difference between a value from this class and the exact value
+     */
+    public static final double MAX_ERROR = 3e-7;
+
+    /*
+     * The number of entries in the table, a power of two so the index can wrap around with a mask
+     */
+    private static final int SIZE = 1 << 12;
+
+    /*
+     * Used to wrap an index around the table
+     */
+    private static final int MASK = SIZE - 1;
+
+    /*
+     * The number of table entries per radian
+     */
+    private static final double ENTRIES_PER_RADIAN = SIZE / (2 * Math.PI);
+
+    /*
+     * The sine of every angle in the table, with one extra entry so the last entry can be interpolated
+     */
+    private static final double[] SIN = new double[SIZE + 1];
+
+    static {
+        for (int i = 0; i <= SIZE; i++) {
+            SIN[i] = Math.sin(i / ENTRIES_PER_RADIAN);
+        }
+    }
+
+    private FastTrig() {
+    }
+
+    /**
+     * Calculates the approximate sine of an angle
+     *
+     * @param rad The angle in radians
+     * @return The sine
+     */
+    public static double sin(double rad) {
+        double index = rad * ENTRIES_PER_RADIAN;
+        double floor = Math.floor(index);
+
+        // wrap the index around the table, this also works for negative angles
+        int i = (int) ((long) floor & MASK);
+        double fraction = index - floor;
+        return SIN[i] + (SIN[i + 1] - SIN[i]) * fraction;
+    }
+
+    /**
+     * Calculates the approximate cosine of an angle
+     *
+     * @param rad The angle in radians
+     * @return The cosine
+     */
+    public static double cos(double rad) {
+        return sin(rad + Math.PI / 2);
+    }
+}
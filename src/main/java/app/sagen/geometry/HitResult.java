@@ -0,0 +1,130 @@
+package app.sagen.geometry;
+
+/**
+ * This class holds the result of a collision test, like the time of impact and the contact normal.
+ * An instance can be reused for many tests, so no new objects are needed in a collision loop.
+ *
+ * @author Sagen
+ */
+public class HitResult {
+
+    /*
+     * The time of impact
+     */
+    private double time;
+
+    /*
+     * The x of the contact normal
+     */
+    private double normalX;
+
+    /*
+     * The y of the contact normal
+     */
+    private double normalY;
+
+    /*
+     * The z of the contact normal
+     */
+    private double normalZ;
+
+    /*
+     * The index of the AABB that was hit
+     */
+    private int index = -1;
+
+    /**
+     * Updates the time and the contact normal
+     *
+     * @param time    The time of impact
+     * @param normalX The x of the contact normal
+     * @param normalY The y of the contact normal
+     * @param normalZ The z of the contact normal
+     * @return This instance
+     */
+    public HitResult set(double time, double normalX, double normalY, double normalZ) {
+        this.time = time;
+        this.normalX = normalX;
+        this.normalY = normalY;
+        this.normalZ = normalZ;
+        return this;
+    }
+
+    /**
+     * Updates the index of the AABB that was hit
+     *
+     * @param index The index
+     * @return This instance
+     */
+    public HitResult setIndex(int index) {
+        this.index = index;
+        return this;
+    }
+
+    /**
+     * Clears this result so it can be reused
+     *
+     * @return This instance
+     */
+    public HitResult reset() {
+        time = normalX = normalY = normalZ = 0;
+        index = -1;
+        return this;
+    }
+
+    /**
+     * Gets the time of impact.
+     * The time is a fraction of the movement, where 0 is the start and 1 is the end.
+     *
+     * @return The time of impact
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * Gets the x of the contact normal
+     *
+     * @return The normal x
+     */
+    public double getNormalX() {
+        return normalX;
+    }
+
+    /**
+     * Gets the y of the contact normal
+     *
+     * @return The normal y
+     */
+    public double getNormalY() {
+        return normalY;
+    }
+
+    /**
+     * Gets the z of the contact normal
+     *
+     * @return The normal z
+     */
+    public double getNormalZ() {
+        return normalZ;
+    }
+
+    /**
+     * Gets the index of the AABB that was hit in a batched test
+     *
+     * @return The index, or -1 if nothing was hit
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Creates a string representation of this class
+     *
+     * @return The string representation
+     */
+    @Override
+    public String toString() {
+        return "HitResult[time=" + time + ", normal=(" + normalX + ", " + normalY + ", " + normalZ + "), index=" + index + "]";
+    }
+}
@@ -0,0 +1,133 @@
+package app.sagen.geometry;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive ints. Used to return indices from queries without boxing them.
+ *
+ * @author Sagen
+ */
+public class IntList {
+
+    /*
+     * The values in this list
+     */
+    private int[] values;
+
+    /*
+     * The number of values in this list
+     */
+    private int size;
+
+    /**
+     * Creates a new empty list
+     */
+    public IntList() {
+        this(16);
+    }
+
+    /**
+     * Creates a new empty list with a given capacity
+     *
+     * @param capacity The initial capacity
+     */
+    public IntList(int capacity) {
+        values = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Adds a value to the end of the list
+     *
+     * @param value The value to add
+     */
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Adds every value of another list to the end of this list
+     *
+     * @param other The list to add
+     */
+    public void addAll(IntList other) {
+        if (size + other.size > values.length) {
+            values = Arrays.copyOf(values, Math.max(size + other.size, size * 2));
+        }
+        System.arraycopy(other.values, 0, values, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * Gets a value from the list
+     *
+     * @param index The index of the value
+     * @return The value
+     */
+    public int get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return values[index];
+    }
+
+    /**
+     * Updates a value in the list
+     *
+     * @param index The index of the value
+     * @param value The new value
+     */
+    public void set(int index, int value) {
+        if (index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        values[index] = value;
+    }
+
+    /**
+     * Calculates the size of the list
+     *
+     * @return The size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if the list is empty, false if not.
+     *
+     * @return True if the list is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Clears the list. The capacity is kept, so the list can be reused without creating a new array.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Creates an array with the values in this list
+     *
+     * @return The array
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Creates a string representation of this class
+     *
+     * @return The string representation
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("IntList[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) builder.append(", ");
+            builder.append(values[i]);
+        }
+        return builder.append("]").toString();
+    }
+}
@@ -0,0 +1,559 @@
+package app.sagen.geometry;
+
+/**
+ * A static k-d tree over a set of points, for finding the nearest points, the points within a radius and the
+ * points inside an AABB2D without testing every point.<br>
+ * The points are copied into the tree when it is built, and the tree has to be built again when they move.
+ * Building reuses the arrays of the last build, so moving points can be handled by building the tree every tick
+ * without creating new arrays once the tree is large enough. The tree is balanced, and is stored as the order of
+ * the points in the arrays, so it has no node objects. Queries never change the tree, so it can be queried from
+ * several threads at once, but not while it is being built.
+ *
+ * @author Sagen
+ */
+public class KdTree2D {
+
+    /*
+     * The max number of points in a leaf
+     */
+    private static final int LEAF_SIZE = 8;
+
+    /*
+     * The axis a node is split along, x
+     */
+    private static final byte SPLIT_X = 0;
+
+    /*
+     * The axis a node is split along, y
+     */
+    private static final byte SPLIT_Y = 1;
+
+    /*
+     * The heap of the best points of a nearest query, one for every thread so queries do not create new arrays
+     */
+    private static final ThreadLocal<NearestHeap> HEAPS = ThreadLocal.withInitial(NearestHeap::new);
+
+    /*
+     * The index of each point in the array the tree was built from, in tree order
+     */
+    private int[] items = new int[0];
+
+    /*
+     * The x of each point in tree order
+     */
+    private double[] xs = new double[0];
+
+    /*
+     * The y of each point in tree order
+     */
+    private double[] ys = new double[0];
+
+    /*
+     * The split axis of every node, stored at the position of the point the node is split at
+     */
+    private byte[] axes = new byte[0];
+
+    /*
+     * The number of points in the tree
+     */
+    private int size;
+
+    /**
+     * Creates a new empty tree
+     */
+    public KdTree2D() {
+    }
+
+    /**
+     * Builds a new tree from an array of points
+     *
+     * @param points The points
+     */
+    public KdTree2D(MutableVector2D[] points) {
+        build(points, points.length);
+    }
+
+    /**
+     * Builds a new tree from arrays of coordinates
+     *
+     * @param xs    The x of each point
+     * @param ys    The y of each point
+     * @param count The number of points to use
+     */
+    public KdTree2D(double[] xs, double[] ys, int count) {
+        build(xs, ys, count);
+    }
+
+    /**
+     * Builds the tree from the first points in an array, replacing the points of the last build
+     *
+     * @param points The points
+     * @param count  The number of points to use
+     * @return This tree
+     */
+    public KdTree2D build(MutableVector2D[] points, int count) {
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            items[i] = i;
+            xs[i] = points[i].getX();
+            ys[i] = points[i].getY();
+        }
+        return build(count);
+    }
+
+    /**
+     * Builds the tree from the points in a Vector2DArray, replacing the points of the last build
+     *
+     * @param points The points
+     * @return This tree
+     */
+    public KdTree2D build(Vector2DArray points) {
+        return build(points.getXArray(), points.getYArray(), points.size());
+    }
+
+    /**
+     * Builds the tree from arrays of coordinates, replacing the points of the last build.
+     * The arrays are copied, and are not changed.
+     *
+     * @param xs    The x of each point
+     * @param ys    The y of each point
+     * @param count The number of points to use
+     * @return This tree
+     */
+    public KdTree2D build(double[] xs, double[] ys, int count) {
+        ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            items[i] = i;
+        }
+        System.arraycopy(xs, 0, this.xs, 0, count);
+        System.arraycopy(ys, 0, this.ys, 0, count);
+        return build(count);
+    }
+
+    /**
+     * Makes room for a number of points
+     *
+     * @param count The number of points
+     */
+    private void ensureCapacity(int count) {
+        if (count > items.length) {
+            int capacity = Math.max(count, items.length + (items.length >> 1));
+            items = new int[capacity];
+            xs = new double[capacity];
+            ys = new double[capacity];
+            axes = new byte[capacity];
+        }
+    }
+
+    /**
+     * Builds the tree from the copied points
+     *
+     * @param count The number of points
+     * @return This tree
+     */
+    private KdTree2D build(int count) {
+        size = count;
+        if (count > 0) build(0, count);
+        return this;
+    }
+
+    /**
+     * Builds a node and its children.
+     * A node is split at its middle point, along the axis where its points are most spread out. The points before
+     * the middle point are smaller than or equal to it along that axis, and the points after it are larger than or
+     * equal to it. The middle point belongs to the node, and not to any of its children.
+     *
+     * @param start The first point in the node
+     * @param end   The point after the last point in the node
+     */
+    private void build(int start, int end) {
+        if (end - start <= LEAF_SIZE) return;
+
+        // find the axis where the points are most spread out
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = start; i < end; i++) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        byte axis = maxX - minX >= maxY - minY ? SPLIT_X : SPLIT_Y;
+
+        int mid = (start + end) >>> 1;
+        select(axis == SPLIT_X ? xs : ys, start, end - 1, mid);
+        axes[mid] = axis;
+        build(start, mid);
+        build(mid + 1, end);
+    }
+
+    /**
+     * Moves the points so that the point at k is where it would be if the points were sorted along an axis,
+     * with smaller or equal points before it and larger or equal points after it
+     *
+     * @param values The coordinates along the axis
+     * @param left   The first point
+     * @param right  The last point
+     * @param k      The position to select
+     */
+    private void select(double[] values, int left, int right, int k) {
+        while (right > left) {
+            double pivot = values[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[i] < pivot) i++;
+                while (values[j] > pivot) j--;
+                if (i <= j) swap(i++, j--);
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Swaps two points
+     *
+     * @param i The first point
+     * @param j The second point
+     */
+    private void swap(int i, int j) {
+        int item = items[i];
+        items[i] = items[j];
+        items[j] = item;
+        double x = xs[i];
+        xs[i] = xs[j];
+        xs[j] = x;
+        double y = ys[i];
+        ys[i] = ys[j];
+        ys[j] = y;
+    }
+
+    /**
+     * Calculates the number of points in the tree
+     *
+     * @return The number of points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the point nearest to a position
+     *
+     * @param x The position x
+     * @param y The position y
+     * @return The index of the nearest point, or -1 if the tree is empty
+     */
+    public int nearest(double x, double y) {
+        if (size == 0) return -1;
+        NearestHeap heap = HEAPS.get();
+        heap.reset(1);
+        nearest(x, y, 1, heap, 0, size);
+        return items[heap.points[0]];
+    }
+
+    /**
+     * Finds the point nearest to a position
+     *
+     * @param position The position
+     * @return The index of the nearest point, or -1 if the tree is empty
+     */
+    public int nearest(MutableVector2D position) {
+        return nearest(position.getX(), position.getY());
+    }
+
+    /**
+     * Finds the k points nearest to a position, and adds their indices to a list from the nearest to the farthest.
+     * If the tree has less than k points, every point is added.
+     *
+     * @param x   The position x
+     * @param y   The position y
+     * @param k   The number of points to find
+     * @param out The list to add the indices to
+     * @return The number of points found
+     */
+    public int nearest(double x, double y, int k, IntList out) {
+        k = Math.min(k, size);
+        if (k <= 0) return 0;
+
+        NearestHeap heap = HEAPS.get();
+        heap.reset(k);
+        nearest(x, y, k, heap, 0, size);
+
+        // take the farthest point from the heap until it is empty, and add them in reverse
+        int[] points = heap.points;
+        double[] distSqr = heap.distSqr;
+        int start = out.size();
+        for (int i = 0; i < k; i++) {
+            out.add(0);
+        }
+        for (int n = k; n > 0; n--) {
+            out.set(start + n - 1, items[points[0]]);
+            points[0] = points[n - 1];
+            distSqr[0] = distSqr[n - 1];
+            siftDown(points, distSqr, 0, n - 1);
+        }
+        return k;
+    }
+
+    /**
+     * Finds the nearest points in a node and its children
+     *
+     * @param x     The position x
+     * @param y     The position y
+     * @param k     The number of points to find
+     * @param heap  The best points so far
+     * @param start The first point in the node
+     * @param end   The point after the last point in the node
+     */
+    private void nearest(double x, double y, int k, NearestHeap heap, int start, int end) {
+        if (end - start <= LEAF_SIZE) {
+            for (int i = start; i < end; i++) {
+                offer(x, y, k, heap, i);
+            }
+            return;
+        }
+
+        // visit the side of the split containing the position first
+        int mid = (start + end) >>> 1;
+        offer(x, y, k, heap, mid);
+        double offset = axes[mid] == SPLIT_X ? x - xs[mid] : y - ys[mid];
+        if (offset < 0) {
+            nearest(x, y, k, heap, start, mid);
+            if (heap.size < k || offset * offset < heap.distSqr[0]) nearest(x, y, k, heap, mid + 1, end);
+        } else {
+            nearest(x, y, k, heap, mid + 1, end);
+            if (heap.size < k || offset * offset < heap.distSqr[0]) nearest(x, y, k, heap, start, mid);
+        }
+    }
+
+    /**
+     * Adds a point to the best points so far, if it is closer than the farthest of them or there are less than k
+     *
+     * @param x    The position x
+     * @param y    The position y
+     * @param k    The number of points to find
+     * @param heap The best points so far
+     * @param i    The point
+     */
+    private void offer(double x, double y, int k, NearestHeap heap, int i) {
+        double dx = xs[i] - x;
+        double dy = ys[i] - y;
+        double distSqr = dx * dx + dy * dy;
+        int[] points = heap.points;
+        double[] heapDistSqr = heap.distSqr;
+        if (heap.size < k) {
+            // the heap is not full, add the point and move it up
+            int position = heap.size++;
+            while (position > 0 && heapDistSqr[(position - 1) >>> 1] < distSqr) {
+                int parent = (position - 1) >>> 1;
+                points[position] = points[parent];
+                heapDistSqr[position] = heapDistSqr[parent];
+                position = parent;
+            }
+            points[position] = i;
+            heapDistSqr[position] = distSqr;
+        } else if (distSqr < heapDistSqr[0]) {
+            // replace the farthest point
+            points[0] = i;
+            heapDistSqr[0] = distSqr;
+            siftDown(points, heapDistSqr, 0, k);
+        }
+    }
+
+    /**
+     * Moves a heap entry down until its children are closer than it
+     *
+     * @param heap        The points in the heap
+     * @param heapDistSqr The squared distance of every point in the heap
+     * @param position    The position of the entry
+     * @param size        The number of entries in the heap
+     */
+    private static void siftDown(int[] heap, double[] heapDistSqr, int position, int size) {
+        int item = heap[position];
+        double distSqr = heapDistSqr[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) break;
+            if (child + 1 < size && heapDistSqr[child + 1] > heapDistSqr[child]) child++;
+            if (heapDistSqr[child] <= distSqr) break;
+            heap[position] = heap[child];
+            heapDistSqr[position] = heapDistSqr[child];
+            position = child;
+        }
+        heap[position] = item;
+        heapDistSqr[position] = distSqr;
+    }
+
+    /**
+     * Finds every point within a distance of a position, including points exactly at the distance
+     *
+     * @param x      The position x
+     * @param y      The position y
+     * @param radius The distance
+     * @param out    The list to add the indices of the points to
+     * @return The number of points found
+     */
+    public int radius(double x, double y, double radius, IntList out) {
+        if (size == 0 || radius < 0) return 0;
+        return radius(x, y, radius * radius, out, 0, size);
+    }
+
+    /**
+     * Finds every point within a distance of a position in a node and its children
+     *
+     * @param x         The position x
+     * @param y         The position y
+     * @param radiusSqr The squared distance
+     * @param out       The list to add the indices of the points to
+     * @param start     The first point in the node
+     * @param end       The point after the last point in the node
+     * @return The number of points found
+     */
+    private int radius(double x, double y, double radiusSqr, IntList out, int start, int end) {
+        if (end - start <= LEAF_SIZE) {
+            int found = 0;
+            for (int i = start; i < end; i++) {
+                double dx = xs[i] - x;
+                double dy = ys[i] - y;
+                if (dx * dx + dy * dy <= radiusSqr) {
+                    out.add(items[i]);
+                    found++;
+                }
+            }
+            return found;
+        }
+
+        // only visit the other side of the split if it is within the distance
+        int mid = (start + end) >>> 1;
+        double dx = xs[mid] - x;
+        double dy = ys[mid] - y;
+        int found = 0;
+        if (dx * dx + dy * dy <= radiusSqr) {
+            out.add(items[mid]);
+            found++;
+        }
+        double offset = axes[mid] == SPLIT_X ? -dx : -dy;
+        if (offset <= 0 || offset * offset <= radiusSqr) found += radius(x, y, radiusSqr, out, start, mid);
+        if (offset >= 0 || offset * offset <= radiusSqr) found += radius(x, y, radiusSqr, out, mid + 1, end);
+        return found;
+    }
+
+    /**
+     * Finds every point inside an AABB, as described in {@link AABB2Dd#containsPoint(double, double)}
+     *
+     * @param box The AABB
+     * @param out The list to add the indices of the points to
+     * @return The number of points found
+     */
+    public int query(AABB2D box, IntList out) {
+        return query(box.getX(), box.getY(), box.getX() + (double) box.getWidth(), box.getY() + (double) box.getHeight(), out);
+    }
+
+    /**
+     * Finds every point inside an AABB, as described in {@link AABB2Dd#containsPoint(double, double)}
+     *
+     * @param box The AABB
+     * @param out The list to add the indices of the points to
+     * @return The number of points found
+     */
+    public int query(AABB2Dd box, IntList out) {
+        return query(box.getX(), box.getY(), box.getX() + box.getWidth(), box.getY() + box.getHeight(), out);
+    }
+
+    /**
+     * Finds every point inside an area, including points on the minimum sides and excluding points on the maximum sides
+     *
+     * @param minX The minimum x
+     * @param minY The minimum y
+     * @param maxX The maximum x
+     * @param maxY The maximum y
+     * @param out  The list to add the indices of the points to
+     * @return The number of points found
+     */
+    public int query(double minX, double minY, double maxX, double maxY, IntList out) {
+        if (size == 0 || !(minX < maxX) || !(minY < maxY)) return 0;
+        return query(minX, minY, maxX, maxY, out, 0, size);
+    }
+
+    /**
+     * Finds every point inside an area in a node and its children
+     *
+     * @param minX  The minimum x
+     * @param minY  The minimum y
+     * @param maxX  The maximum x
+     * @param maxY  The maximum y
+     * @param out   The list to add the indices of the points to
+     * @param start The first point in the node
+     * @param end   The point after the last point in the node
+     * @return The number of points found
+     */
+    private int query(double minX, double minY, double maxX, double maxY, IntList out, int start, int end) {
+        if (end - start <= LEAF_SIZE) {
+            int found = 0;
+            for (int i = start; i < end; i++) {
+                if (xs[i] >= minX && ys[i] >= minY && xs[i] < maxX && ys[i] < maxY) {
+                    out.add(items[i]);
+                    found++;
+                }
+            }
+            return found;
+        }
+
+        // test the point at the split, then the sides of the split the area reaches into
+        int mid = (start + end) >>> 1;
+        int found = 0;
+        if (xs[mid] >= minX && ys[mid] >= minY && xs[mid] < maxX && ys[mid] < maxY) {
+            out.add(items[mid]);
+            found++;
+        }
+        double split = axes[mid] == SPLIT_X ? xs[mid] : ys[mid];
+        double min = axes[mid] == SPLIT_X ? minX : minY;
+        double max = axes[mid] == SPLIT_X ? maxX : maxY;
+        if (min <= split) found += query(minX, minY, maxX, maxY, out, start, mid);
+        if (max > split) found += query(minX, minY, maxX, maxY, out, mid + 1, end);
+        return found;
+    }
+
+    /**
+     * The best points found by a nearest query so far, as a max heap by distance so the farthest of them can be
+     * replaced. The arrays only grow, so the heap can be reused for any number of queries.
+     */
+    private static final class NearestHeap {
+
+        /*
+         * The points in the heap
+         */
+        int[] points = new int[16];
+
+        /*
+         * The squared distance of every point in the heap
+         */
+        double[] distSqr = new double[16];
+
+        /*
+         * The number of points in the heap
+         */
+        int size;
+
+        /**
+         * Empties the heap, and grows it so it holds at least k points
+         *
+         * @param k The number of points
+         */
+        void reset(int k) {
+            if (k > points.length) {
+                int capacity = Math.max(k, points.length * 2);
+                points = new int[capacity];
+                distSqr = new double[capacity];
+            }
+            size = 0;
+        }
+    }
+}
@@ -148,7 +148,7 @@ public class MutableVector2D {
      * @return The distance between
      */
     public double dist(MutableVector2D other) {
-        return Math.sqrt(Math.pow(this.getX() - other.getX(), 2) + Math.pow(this.getY() - other.getY(), 2));
+        return Math.sqrt(distSqr(other));
     }
 
     /**
@@ -159,7 +159,9 @@ public class MutableVector2D {
      * @return The distance between
      */
     public double distSqr(MutableVector2D other) {
-        return Math.pow(this.getX() - other.getX(), 2) + Math.pow(this.getY() - other.getY(), 2);
+        double dx = this.deltaX - other.deltaX;
+        double dy = this.deltaY - other.deltaY;
+        return dx * dx + dy * dy;
     }
 
     /**
@@ -225,6 +227,26 @@ public class MutableVector2D {
         return this;
     }
 
+    /**
+     * Sets the x and y to the values of an immutable vector
+     *
+     * @param other The vector to copy
+     * @return This vector instance
+     */
+    public MutableVector2D set(Vector2D other) {
+        this.deltaX = other.getX();
+        this.deltaY = other.getY();
+        return this;
+    }
+
+    /**
+     * Creates an immutable copy of this vector
+     *
+     * @return The immutable vector
+     */
+    public Vector2D toImmutable() {
+        return new Vector2D(deltaX, deltaY);
+    }
 
     /**
      * Method for rotating a vector around its starting position.
@@ -233,8 +255,30 @@ public class MutableVector2D {
      */
     public MutableVector2D rotate(double degrees) {
         double rad = degrees * Math.PI / 180;
-        double newX = deltaX * Math.cos(rad) - deltaY * Math.sin(rad);
-        double newY = deltaX * Math.sin(rad) + deltaY * Math.cos(rad);
+        return rotate(Math.sin(rad), Math.cos(rad));
+    }
+
+    /**
+     * Method for rotating a vector around its starting position.
+     * Use this when rotating many vectors by the same angle, so the sine and cosine is only calculated once.
+     *
+     * @param rotation The rotation
+     * @return This vector instance
+     */
+    public MutableVector2D rotate(Rotation rotation) {
+        return rotate(rotation.getSin(), rotation.getCos());
+    }
+
+    /**
+     * Method for rotating a vector around its starting position by an angle with a known sine and cosine.
+     *
+     * @param sin The sine of the angle
+     * @param cos The cosine of the angle
+     * @return This vector instance
+     */
+    public MutableVector2D rotate(double sin, double cos) {
+        double newX = deltaX * cos - deltaY * sin;
+        double newY = deltaX * sin + deltaY * cos;
         this.deltaX = newX;
         this.deltaY = newY;
         return this;
@@ -0,0 +1,660 @@
+package app.sagen.geometry;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Pushes a set of overlapping AABB's apart, for example to keep a crowd of entities from standing inside each other.
+ * <br>
+ * The AABB's are stored in primitive arrays. Every call to {@link #solve(int)} finds the overlapping pairs once,
+ * and then runs a number of iterations. Every iteration calculates the minimum translation of every overlapping pair,
+ * the shortest move along one axis that separates them, and splits it between the two AABB's by their inverse mass.
+ * The moves of an AABB are averaged and applied at the end of the iteration, so the order of the pairs does not
+ * matter. AABB's that touch each other through overlapping pairs form an island, and islands are solved in parallel
+ * on a ForkJoinPool. An AABB with an inverse mass of 0 never moves, and does not join the islands that push
+ * against it.<br>
+ * AABB's with a width or height less than or equal to 0 can never intersect anything, and are left alone.
+ *
+ * @author Sagen
+ */
+public class OverlapSolver2D {
+
+    /*
+     * The smallest number of pairs solved by one task
+     */
+    private static final int MIN_TASK_PAIRS = 1024;
+
+    /*
+     * The pool solving the islands
+     */
+    private final ForkJoinPool pool;
+
+    /*
+     * The position x of every AABB
+     */
+    private double[] xs = new double[16];
+
+    /*
+     * The position y of every AABB
+     */
+    private double[] ys = new double[16];
+
+    /*
+     * The width of every AABB
+     */
+    private double[] ws = new double[16];
+
+    /*
+     * The height of every AABB
+     */
+    private double[] hs = new double[16];
+
+    /*
+     * The inverse mass of every AABB, 0 for AABB's that never move
+     */
+    private double[] inverseMasses = new double[16];
+
+    /*
+     * The largest overlap that counts as touching
+     */
+    private double tolerance = 1e-9;
+
+    /*
+     * The number of AABB's
+     */
+    private int size;
+
+    /*
+     * The sum of the moves of every AABB in an iteration
+     */
+    private double[] moveX = new double[16];
+
+    /*
+     * The sum of the moves of every AABB in an iteration
+     */
+    private double[] moveY = new double[16];
+
+    /*
+     * The number of moves of every AABB in an iteration
+     */
+    private int[] moveCount = new int[16];
+
+    /*
+     * The overlapping pairs, two AABB's each, in the order they were found
+     */
+    private final IntList found = new IntList();
+
+    /*
+     * The overlapping pairs, two AABB's each, grouped by island
+     */
+    private int[] pairs = new int[0];
+
+    /*
+     * The first pair of every island, followed by the number of pairs
+     */
+    private int[] islandStart = new int[1];
+
+    /*
+     * The number of pairs that still overlap in every island
+     */
+    private int[] remaining = new int[0];
+
+    /*
+     * The AABB's sorted by their position x
+     */
+    private int[] order = new int[0];
+
+    /*
+     * The position x of the sorted AABB's
+     */
+    private double[] sortedX = new double[0];
+
+    /*
+     * The max x of the sorted AABB's
+     */
+    private double[] sortedMaxX = new double[0];
+
+    /*
+     * The position y of the sorted AABB's
+     */
+    private double[] sortedY = new double[0];
+
+    /*
+     * The max y of the sorted AABB's
+     */
+    private double[] sortedMaxY = new double[0];
+
+    /*
+     * The parent of every AABB in the islands
+     */
+    private int[] parents = new int[0];
+
+    /*
+     * The island of every root AABB, or -1
+     */
+    private int[] islandOf = new int[0];
+
+    /*
+     * The island of every pair
+     */
+    private int[] pairIsland = new int[0];
+
+    /**
+     * Creates a new solver running on the common pool
+     */
+    public OverlapSolver2D() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new solver running on a pool
+     *
+     * @param pool The pool
+     */
+    public OverlapSolver2D(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Sets the largest overlap that counts as touching instead of overlapping.
+     * AABB's pushed apart end up touching, and rounding can leave them overlapping by a tiny amount.
+     *
+     * @param tolerance The largest overlap ignored, 1e-9 by default
+     */
+    public void setTolerance(double tolerance) {
+        if (!(tolerance >= 0)) throw new IllegalArgumentException("tolerance must not be negative");
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Adds an AABB that can be moved, with an inverse mass of 1
+     *
+     * @param x The position x
+     * @param y The position y
+     * @param w The width
+     * @param h The height
+     * @return The index of the AABB
+     */
+    public int add(double x, double y, double w, double h) {
+        return add(x, y, w, h, 1);
+    }
+
+    /**
+     * Adds an AABB. When two AABB's are pushed apart, the one with the largest inverse mass moves the most.
+     *
+     * @param x           The position x
+     * @param y           The position y
+     * @param w           The width
+     * @param h           The height
+     * @param inverseMass 1 divided by the mass, or 0 for an AABB that never moves
+     * @return The index of the AABB
+     */
+    public int add(double x, double y, double w, double h, double inverseMass) {
+        if (!(inverseMass >= 0)) throw new IllegalArgumentException("inverseMass must not be negative");
+        if (size == xs.length) {
+            int capacity = size * 2;
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            ws = Arrays.copyOf(ws, capacity);
+            hs = Arrays.copyOf(hs, capacity);
+            inverseMasses = Arrays.copyOf(inverseMasses, capacity);
+            moveX = Arrays.copyOf(moveX, capacity);
+            moveY = Arrays.copyOf(moveY, capacity);
+            moveCount = Arrays.copyOf(moveCount, capacity);
+        }
+        xs[size] = x;
+        ys[size] = y;
+        ws[size] = w;
+        hs[size] = h;
+        inverseMasses[size] = inverseMass;
+        return size++;
+    }
+
+    /**
+     * Adds an AABB that can be moved, with an inverse mass of 1
+     *
+     * @param box The AABB to copy
+     * @return The index of the AABB
+     */
+    public int add(AABB2D box) {
+        return add(box.getX(), box.getY(), box.getWidth(), box.getHeight());
+    }
+
+    /**
+     * Adds an AABB that can be moved, with an inverse mass of 1
+     *
+     * @param box The AABB to copy
+     * @return The index of the AABB
+     */
+    public int add(AABB2Dd box) {
+        return add(box.getX(), box.getY(), box.getWidth(), box.getHeight());
+    }
+
+    /**
+     * Removes every AABB
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Calculates the number of AABB's
+     *
+     * @return The number of AABB's
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the position x of an AABB
+     *
+     * @param index The index of the AABB
+     * @return The x
+     */
+    public double getX(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return xs[index];
+    }
+
+    /**
+     * Gets the position y of an AABB
+     *
+     * @param index The index of the AABB
+     * @return The y
+     */
+    public double getY(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return ys[index];
+    }
+
+    /**
+     * Moves an AABB
+     *
+     * @param index The index of the AABB
+     * @param x     The position x
+     * @param y     The position y
+     */
+    public void setPosition(int index, double x, double y) {
+        if (index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        xs[index] = x;
+        ys[index] = y;
+    }
+
+    /**
+     * Copies the position of an AABB to an AABB2D, rounded to the nearest whole number
+     *
+     * @param index The index of the AABB
+     * @param dest  The AABB to move
+     * @return The destination AABB
+     */
+    public AABB2D get(int index, AABB2D dest) {
+        dest.setPosition((int) Math.round(getX(index)), (int) Math.round(getY(index)));
+        return dest;
+    }
+
+    /**
+     * Copies the position of an AABB to an AABB2Dd
+     *
+     * @param index The index of the AABB
+     * @param dest  The AABB to move
+     * @return The destination AABB
+     */
+    public AABB2Dd get(int index, AABB2Dd dest) {
+        dest.setPosition(getX(index), getY(index));
+        return dest;
+    }
+
+    /**
+     * Pushes the overlapping AABB's apart
+     *
+     * @param iterations The max number of iterations, more iterations separate large piles better
+     * @return The number of pairs that still overlap
+     */
+    public int solve(int iterations) {
+        if (iterations < 0) throw new IllegalArgumentException("iterations must not be negative");
+        findPairs();
+        if (found.isEmpty()) return 0;
+
+        // group the pairs by island, and solve groups of islands in parallel
+        int islands = groupIslands();
+        pool.invoke(new SolveTask(iterations, 0, islands));
+
+        int count = 0;
+        for (int island = 0; island < islands; island++) {
+            count += remaining[island];
+        }
+        return count;
+    }
+
+    /**
+     * Finds every overlapping pair where at least one AABB can move, by sorting the AABB's along the x axis and
+     * testing each one against the following AABB's that start before it ends
+     */
+    private void findPairs() {
+        found.clear();
+        if (order.length < size) {
+            order = new int[size];
+            sortedX = new double[size];
+            sortedMaxX = new double[size];
+            sortedY = new double[size];
+            sortedMaxY = new double[size];
+        }
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (ws[i] > 0 && hs[i] > 0) {
+                order[count] = i;
+                sortedX[count++] = xs[i];
+            }
+        }
+        sort(0, count - 1);
+
+        // copy the bounds in sorted order, so the sweep reads them one after each other
+        for (int i = 0; i < count; i++) {
+            int index = order[i];
+            sortedMaxX[i] = xs[index] + ws[index];
+            sortedY[i] = ys[index];
+            sortedMaxY[i] = ys[index] + hs[index];
+        }
+
+        for (int i = 0; i < count; i++) {
+            double maxX = sortedMaxX[i];
+            double minY = sortedY[i];
+            double maxY = sortedMaxY[i];
+            for (int j = i + 1; j < count && sortedX[j] < maxX; j++) {
+                if (minY < sortedMaxY[j] && sortedY[j] < maxY) {
+                    int a = order[i];
+                    int b = order[j];
+                    if (inverseMasses[a] == 0 && inverseMasses[b] == 0) continue;
+                    found.add(a);
+                    found.add(b);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sorts AABB's by their position x
+     *
+     * @param left  The first index to sort
+     * @param right The last index to sort
+     */
+    private void sort(int left, int right) {
+        double[] keys = sortedX;
+        while (right - left > 16) {
+            double pivot = keys[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+                if (i <= j) {
+                    double key = keys[i];
+                    keys[i] = keys[j];
+                    keys[j] = key;
+                    int swap = order[i];
+                    order[i++] = order[j];
+                    order[j--] = swap;
+                }
+            }
+            // sort the smallest side first, and loop on the largest, so the stack stays small
+            if (j - left < right - i) {
+                sort(left, j);
+                left = i;
+            } else {
+                sort(i, right);
+                right = j;
+            }
+        }
+
+        // insertion sort the small ranges
+        for (int i = left + 1; i <= right; i++) {
+            double key = keys[i];
+            int item = order[i];
+            int j = i - 1;
+            while (j >= left && keys[j] > key) {
+                keys[j + 1] = keys[j];
+                order[j + 1] = order[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            order[j + 1] = item;
+        }
+    }
+
+    /**
+     * Finds the islands of AABB's connected by pairs, and groups the pairs by island
+     *
+     * @return The number of islands
+     */
+    private int groupIslands() {
+        int pairCount = found.size() / 2;
+        if (parents.length < size) {
+            parents = new int[size];
+            islandOf = new int[size];
+        }
+        if (pairIsland.length < pairCount) {
+            pairIsland = new int[pairCount];
+            pairs = new int[pairCount * 2];
+        }
+
+        // join the AABB's of every pair, AABB's that never move are not joined
+        for (int i = 0; i < size; i++) {
+            parents[i] = i;
+        }
+        for (int p = 0; p < pairCount; p++) {
+            int a = found.get(2 * p);
+            int b = found.get(2 * p + 1);
+            if (inverseMasses[a] != 0 && inverseMasses[b] != 0) {
+                int rootA = find(a);
+                int rootB = find(b);
+                if (rootA != rootB) parents[rootA] = rootB;
+            }
+        }
+
+        // number the islands, and count their pairs
+        Arrays.fill(islandOf, 0, size, -1);
+        int islands = 0;
+        for (int p = 0; p < pairCount; p++) {
+            int a = found.get(2 * p);
+            int root = find(inverseMasses[a] != 0 ? a : found.get(2 * p + 1));
+            if (islandOf[root] < 0) {
+                if (islands + 1 >= islandStart.length) islandStart = Arrays.copyOf(islandStart, (islands + 1) * 2);
+                islandStart[islands] = 0;
+                islandOf[root] = islands++;
+            }
+            pairIsland[p] = islandOf[root];
+            islandStart[pairIsland[p]]++;
+        }
+
+        // turn the counts into the end of every island, and fill every island backwards, leaving its start
+        for (int island = 1; island < islands; island++) {
+            islandStart[island] += islandStart[island - 1];
+        }
+        islandStart[islands] = pairCount;
+        for (int p = pairCount - 1; p >= 0; p--) {
+            int position = --islandStart[pairIsland[p]];
+            pairs[2 * position] = found.get(2 * p);
+            pairs[2 * position + 1] = found.get(2 * p + 1);
+        }
+        if (remaining.length < islands) remaining = new int[islands];
+        return islands;
+    }
+
+    /**
+     * Finds the root of an island, and shortens the way to it
+     *
+     * @param i The AABB
+     * @return The root
+     */
+    private int find(int i) {
+        while (parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    /**
+     * Runs the iterations of an island
+     *
+     * @param start      The first pair of the island
+     * @param end        The pair after the last pair of the island
+     * @param iterations The max number of iterations
+     * @return The number of pairs that still overlap
+     */
+    private int solveIsland(int start, int end, int iterations) {
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            if (!accumulate(start, end)) return 0;
+
+            // apply the average move of every AABB once
+            for (int p = start; p < end; p++) {
+                apply(pairs[2 * p]);
+                apply(pairs[2 * p + 1]);
+            }
+        }
+
+        // count the pairs left, without moving anything
+        int overlapping = 0;
+        for (int p = start; p < end; p++) {
+            int a = pairs[2 * p];
+            int b = pairs[2 * p + 1];
+            if (getOverlap(xs[a], ws[a], xs[b], ws[b]) > tolerance && getOverlap(ys[a], hs[a], ys[b], hs[b]) > tolerance) {
+                overlapping++;
+            }
+        }
+        return overlapping;
+    }
+
+    /**
+     * Calculates the minimum translation of every overlapping pair of an island, and adds it to the moves of its AABB's
+     *
+     * @param start The first pair of the island
+     * @param end   The pair after the last pair of the island
+     * @return True if any pair overlaps
+     */
+    private boolean accumulate(int start, int end) {
+        boolean any = false;
+        for (int p = start; p < end; p++) {
+            int a = pairs[2 * p];
+            int b = pairs[2 * p + 1];
+            double overlapX = getOverlap(xs[a], ws[a], xs[b], ws[b]);
+            if (overlapX <= tolerance) continue;
+            double overlapY = getOverlap(ys[a], hs[a], ys[b], hs[b]);
+            if (overlapY <= tolerance) continue;
+            any = true;
+
+            // push along the axis with the smallest overlap, away from the center of the other AABB
+            double pushX = 0, pushY = 0;
+            if (overlapX <= overlapY) {
+                pushX = 2 * xs[a] + ws[a] <= 2 * xs[b] + ws[b] ? -overlapX : overlapX;
+            } else {
+                pushY = 2 * ys[a] + hs[a] <= 2 * ys[b] + hs[b] ? -overlapY : overlapY;
+            }
+
+            // split the push by the inverse masses
+            double share = inverseMasses[a] / (inverseMasses[a] + inverseMasses[b]);
+            addMove(a, pushX * share, pushY * share);
+            addMove(b, -pushX * (1 - share), -pushY * (1 - share));
+        }
+        return any;
+    }
+
+    /**
+     * Adds a move to an AABB
+     *
+     * @param i  The AABB
+     * @param dx The move along the x axis
+     * @param dy The move along the y axis
+     */
+    private void addMove(int i, double dx, double dy) {
+        if (inverseMasses[i] == 0) return;
+        moveX[i] += dx;
+        moveY[i] += dy;
+        moveCount[i]++;
+    }
+
+    /**
+     * Moves an AABB by the average of its moves, and clears them
+     *
+     * @param i The AABB
+     */
+    private void apply(int i) {
+        int count = moveCount[i];
+        if (count == 0) return;
+        xs[i] += moveX[i] / count;
+        ys[i] += moveY[i] / count;
+        moveX[i] = 0;
+        moveY[i] = 0;
+        moveCount[i] = 0;
+    }
+
+    /**
+     * Calculates the length of the overlap between two ranges
+     *
+     * @param a  The start of the first range
+     * @param al The length of the first range
+     * @param b  The start of the second range
+     * @param bl The length of the second range
+     * @return The overlap, or a negative number for the gap between them
+     */
+    private static double getOverlap(double a, double al, double b, double bl) {
+        return Math.min(a + al, b + bl) - Math.max(a, b);
+    }
+
+    /**
+     * Splits a range of islands until it has few pairs, and solves them
+     */
+    private final class SolveTask extends RecursiveAction {
+
+        /*
+         * The tasks are never serialized, the version only keeps the compiler quiet
+         */
+        private static final long serialVersionUID = 1L;
+
+        /*
+         * The max number of iterations
+         */
+        private final int iterations;
+
+        /*
+         * The first island of this task
+         */
+        private final int from;
+
+        /*
+         * The island after the last island of this task
+         */
+        private final int to;
+
+        /**
+         * Creates a new task
+         *
+         * @param iterations The max number of iterations
+         * @param from       The first island of this task
+         * @param to         The island after the last island of this task
+         */
+        SolveTask(int iterations, int from, int to) {
+            this.iterations = iterations;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1 && islandStart[to] - islandStart[from] > MIN_TASK_PAIRS) {
+                // split at the island closest to half of the pairs
+                int half = (islandStart[from] + islandStart[to]) >>> 1;
+                int mid = Arrays.binarySearch(islandStart, from, to, half);
+                if (mid < 0) mid = -mid - 1;
+                mid = Math.max(from + 1, Math.min(to - 1, mid));
+                invokeAll(new SolveTask(iterations, from, mid), new SolveTask(iterations, mid, to));
+                return;
+            }
+            for (int island = from; island < to; island++) {
+                remaining[island] = solveIsland(islandStart[island], islandStart[island + 1], iterations);
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package app.sagen.geometry;
+
+/**
+ * This class is a representation of a ray or a line segment in 2D.
+ * The inverse of the direction is precalculated, so testing the same ray against many AABB's is cheap.
+ *
+ * @author Sagen
+ */
+public class Ray2D {
+
+    /*
+     * The origin x
+     */
+    private double originX;
+
+    /*
+     * The origin y
+     */
+    private double originY;
+
+    /*
+     * The direction x
+     */
+    private double directionX;
+
+    /*
+     * The direction y
+     */
+    private double directionY;
+
+    /*
+     * The inverse of the direction x
+     */
+    private double inverseX;
+
+    /*
+     * The inverse of the direction y
+     */
+    private double inverseY;
+
+    /*
+     * The max distance along the ray, measured in lengths of the direction
+     */
+    private double length;
+
+    /**
+     * Creates a new ray with no end
+     *
+     * @param originX    The origin x
+     * @param originY    The origin y
+     * @param directionX The direction x
+     * @param directionY The direction y
+     */
+    public Ray2D(double originX, double originY, double directionX, double directionY) {
+        set(originX, originY, directionX, directionY, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Creates a new ray with a max length
+     *
+     * @param originX    The origin x
+     * @param originY    The origin y
+     * @param directionX The direction x
+     * @param directionY The direction y
+     * @param length     The max distance along the ray, measured in lengths of the direction
+     */
+    public Ray2D(double originX, double originY, double directionX, double directionY, double length) {
+        set(originX, originY, directionX, directionY, length);
+    }
+
+    /**
+     * Creates a new line segment between two points.
+     * The direction is the difference between the points, so the times along the segment goes from 0 to 1.
+     *
+     * @param startX The start x
+     * @param startY The start y
+     * @param endX   The end x
+     * @param endY   The end y
+     * @return The line segment
+     */
+    public static Ray2D segment(double startX, double startY, double endX, double endY) {
+        return new Ray2D(startX, startY, endX - startX, endY - startY, 1);
+    }
+
+    /**
+     * Updates the ray with new values
+     *
+     * @param originX    The origin x
+     * @param originY    The origin y
+     * @param directionX The direction x
+     * @param directionY The direction y
+     * @param length     The max distance along the ray, measured in lengths of the direction
+     * @return This ray instance
+     */
+    public Ray2D set(double originX, double originY, double directionX, double directionY, double length) {
+        this.originX = originX;
+        this.originY = originY;
+        this.directionX = directionX;
+        this.directionY = directionY;
+        this.inverseX = 1 / directionX;
+        this.inverseY = 1 / directionY;
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * Updates the ray to be a line segment between two points
+     *
+     * @param startX The start x
+     * @param startY The start y
+     * @param endX   The end x
+     * @param endY   The end y
+     * @return This ray instance
+     */
+    public Ray2D setSegment(double startX, double startY, double endX, double endY) {
+        return set(startX, startY, endX - startX, endY - startY, 1);
+    }
+
+    /**
+     * Gets the origin x
+     *
+     * @return The origin x
+     */
+    public double getOriginX() {
+        return originX;
+    }
+
+    /**
+     * Gets the origin y
+     *
+     * @return The origin y
+     */
+    public double getOriginY() {
+        return originY;
+    }
+
+    /**
+     * Gets the direction x
+     *
+     * @return The direction x
+     */
+    public double getDirectionX() {
+        return directionX;
+    }
+
+    /**
+     * Gets the direction y
+     *
+     * @return The direction y
+     */
+    public double getDirectionY() {
+        return directionY;
+    }
+
+    /**
+     * Gets the inverse of the direction x
+     *
+     * @return The inverse direction x
+     */
+    public double getInverseX() {
+        return inverseX;
+    }
+
+    /**
+     * Gets the inverse of the direction y
+     *
+     * @return The inverse direction y
+     */
+    public double getInverseY() {
+        return inverseY;
+    }
+
+    /**
+     * Gets the max distance along the ray, measured in lengths of the direction
+     *
+     * @return The length
+     */
+    public double getLength() {
+        return length;
+    }
+
+    /**
+     * Calculates the x of the point at a time along the ray
+     *
+     * @param time The time along the ray
+     * @return The x
+     */
+    public double getPointX(double time) {
+        return originX + directionX * time;
+    }
+
+    /**
+     * Calculates the y of the point at a time along the ray
+     *
+     * @param time The time along the ray
+     * @return The y
+     */
+    public double getPointY(double time) {
+        return originY + directionY * time;
+    }
+
+    /**
+     * Creates a string representation of this class
+     *
+     * @return The string representation
+     */
+    @Override
+    public String toString() {
+        return "Ray2D[origin=(" + originX + ", " + originY + "), direction=(" + directionX + ", " + directionY + "), length=" + length + "]";
+    }
+}
@@ -0,0 +1,279 @@
+package app.sagen.geometry;
+
+/**
+ * This class is a representation of a ray or a line segment in 3D.
+ * The inverse of the direction is precalculated, so testing the same ray against many AABB's is cheap.
+ *
+ * @author Sagen
+ */
+public class Ray3D {
+
+    /*
+     * The origin x
+     */
+    private double originX;
+
+    /*
+     * The origin y
+     */
+    private double originY;
+
+    /*
+     * The origin z
+     */
+    private double originZ;
+
+    /*
+     * The direction x
+     */
+    private double directionX;
+
+    /*
+     * The direction y
+     */
+    private double directionY;
+
+    /*
+     * The direction z
+     */
+    private double directionZ;
+
+    /*
+     * The inverse of the direction x
+     */
+    private double inverseX;
+
+    /*
+     * The inverse of the direction y
+     */
+    private double inverseY;
+
+    /*
+     * The inverse of the direction z
+     */
+    private double inverseZ;
+
+    /*
+     * The max distance along the ray, measured in lengths of the direction
+     */
+    private double length;
+
+    /**
+     * Creates a new ray with no end
+     *
+     * @param originX    The origin x
+     * @param originY    The origin y
+     * @param originZ    The origin z
+     * @param directionX The direction x
+     * @param directionY The direction y
+     * @param directionZ The direction z
+     */
+    public Ray3D(double originX, double originY, double originZ, double directionX, double directionY, double directionZ) {
+        set(originX, originY, originZ, directionX, directionY, directionZ, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Creates a new ray with a max length
+     *
+     * @param originX    The origin x
+     * @param originY    The origin y
+     * @param originZ    The origin z
+     * @param directionX The direction x
+     * @param directionY The direction y
+     * @param directionZ The direction z
+     * @param length     The max distance along the ray, measured in lengths of the direction
+     */
+    public Ray3D(double originX, double originY, double originZ,
+                 double directionX, double directionY, double directionZ, double length) {
+        set(originX, originY, originZ, directionX, directionY, directionZ, length);
+    }
+
+    /**
+     * Creates a new line segment between two points.
+     * The direction is the difference between the points, so the times along the segment goes from 0 to 1.
+     *
+     * @param startX The start x
+     * @param startY The start y
+     * @param startZ The start z
+     * @param endX   The end x
+     * @param endY   The end y
+     * @param endZ   The end z
+     * @return The line segment
+     */
+    public static Ray3D segment(double startX, double startY, double startZ, double endX, double endY, double endZ) {
+        return new Ray3D(startX, startY, startZ, endX - startX, endY - startY, endZ - startZ, 1);
+    }
+
+    /**
+     * Updates the ray with new values
+     *
+     * @param originX    The origin x
+     * @param originY    The origin y
+     * @param originZ    The origin z
+     * @param directionX The direction x
+     * @param directionY The direction y
+     * @param directionZ The direction z
+     * @param length     The max distance along the ray, measured in lengths of the direction
+     * @return This ray instance
+     */
+    public Ray3D set(double originX, double originY, double originZ,
+                     double directionX, double directionY, double directionZ, double length) {
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
+        this.directionX = directionX;
+        this.directionY = directionY;
+        this.directionZ = directionZ;
+        this.inverseX = 1 / directionX;
+        this.inverseY = 1 / directionY;
+        this.inverseZ = 1 / directionZ;
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * Updates the ray to be a line segment between two points
+     *
+     * @param startX The start x
+     * @param startY The start y
+     * @param startZ The start z
+     * @param endX   The end x
+     * @param endY   The end y
+     * @param endZ   The end z
+     * @return This ray instance
+     */
+    public Ray3D setSegment(double startX, double startY, double startZ, double endX, double endY, double endZ) {
+        return set(startX, startY, startZ, endX - startX, endY - startY, endZ - startZ, 1);
+    }
+
+    /**
+     * Gets the origin x
+     *
+     * @return The origin x
+     */
+    public double getOriginX() {
+        return originX;
+    }
+
+    /**
+     * Gets the origin y
+     *
+     * @return The origin y
+     */
+    public double getOriginY() {
+        return originY;
+    }
+
+    /**
+     * Gets the origin z
+     *
+     * @return The origin z
+     */
+    public double getOriginZ() {
+        return originZ;
+    }
+
+    /**
+     * Gets the direction x
+     *
+     * @return The direction x
+     */
+    public double getDirectionX() {
+        return directionX;
+    }
+
+    /**
+     * Gets the direction y
+     *
+     * @return The direction y
+     */
+    public double getDirectionY() {
+        return directionY;
+    }
+
+    /**
+     * Gets the direction z
+     *
+     * @return The direction z
+     */
+    public double getDirectionZ() {
+        return directionZ;
+    }
+
+    /**
+     * Gets the inverse of the direction x
+     *
+     * @return The inverse direction x
+     */
+    public double getInverseX() {
+        return inverseX;
+    }
+
+    /**
+     * Gets the inverse of the direction y
+     *
+     * @return The inverse direction y
+     */
+    public double getInverseY() {
+        return inverseY;
+    }
+
+    /**
+     * Gets the inverse of the direction z
+     *
+     * @return The inverse direction z
+     */
+    public double getInverseZ() {
+        return inverseZ;
+    }
+
+    /**
+     * Gets the max distance along the ray, measured in lengths of the direction
+     *
+     * @return The length
+     */
+    public double getLength() {
+        return length;
+    }
+
+    /**
+     * Calculates the x of the point at a time along the ray
+     *
+     * @param time The time along the ray
+     * @return The x
+     */
+    public double getPointX(double time) {
+        return originX + directionX * time;
+    }
+
+    /**
+     * Calculates the y of the point at a time along the ray
+     *
+     * @param time The time along the ray
+     * @return The y
+     */
+    public double getPointY(double time) {
+        return originY + directionY * time;
+    }
+
+    /**
+     * Calculates the z of the point at a time along the ray
+     *
+     * @param time The time along the ray
+     * @return The z
+     */
+    public double getPointZ(double time) {
+        return originZ + directionZ * time;
+    }
+
+    /**
+     * Creates a string representation of this class
+     *
+     * @return The string representation
+     */
+    @Override
+    public String toString() {
+        return "Ray3D[origin=(" + originX + ", " + originY + ", " + originZ + "), direction=("
+                + directionX + ", " + directionY + ", " + directionZ + "), length=" + length + "]";
+    }
+}
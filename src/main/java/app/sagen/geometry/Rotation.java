@@ -0,0 +1,102 @@
+package app.sagen.geometry;
+
+/**
+ * A rotation with a precalculated sine and cosine.
+ * Rotating many vectors by the same angle with a single Rotation only calculates the sine and cosine once.
+ *
+ * @author Sagen
+ */
+public final class Rotation {
+
+    /*
+     * The sine of the angle
+     */
+    private final double sin;
+
+    /*
+     * The cosine of the angle
+     */
+    private final double cos;
+
+    /**
+     * Creates a new rotation
+     *
+     * @param degrees The degrees to rotate
+     */
+    public Rotation(double degrees) {
+        double rad = degrees * Math.PI / 180;
+        this.sin = Math.sin(rad);
+        this.cos = Math.cos(rad);
+    }
+
+    /**
+     * Creates a new rotation from a sine and cosine
+     *
+     * @param sin The sine of the angle
+     * @param cos The cosine of the angle
+     */
+    private Rotation(double sin, double cos) {
+        this.sin = sin;
+        this.cos = cos;
+    }
+
+    /**
+     * Creates a new rotation from a sine and cosine that is already calculated
+     *
+     * @param sin The sine of the angle
+     * @param cos The cosine of the angle
+     * @return The rotation
+     */
+    public static Rotation fromSinCos(double sin, double cos) {
+        return new Rotation(sin, cos);
+    }
+
+    /**
+     * Creates a new rotation using the approximate sine and cosine from FastTrig
+     *
+     * @param degrees The degrees to rotate
+     * @return The rotation
+     * @see FastTrig#MAX_ERROR
+     */
+    public static Rotation approximate(double degrees) {
+        double rad = degrees * Math.PI / 180;
+        return new Rotation(FastTrig.sin(rad), FastTrig.cos(rad));
+    }
+
+    /**
+     * Creates the rotation that reverts this rotation
+     *
+     * @return The inverse rotation
+     */
+    public Rotation inverse() {
+        return new Rotation(-sin, cos);
+    }
+
+    /**
+     * Gets the sine of the angle
+     *
+     * @return The sine
+     */
+    public double getSin() {
+        return sin;
+    }
+
+    /**
+     * Gets the cosine of the angle
+     *
+     * @return The cosine
+     */
+    public double getCos() {
+        return cos;
+    }
+
+    /**
+     * Returns a string representation of this class
+     *
+     * @return The string representation
+     */
+    @Override
+    public String toString() {
+        return "Rotation(sin=" + sin + ", cos=" + cos + ")";
+    }
+}
@@ -0,0 +1,382 @@
+package app.sagen.geometry;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds every intersecting pair between two sets of AABB2D's, using every thread of a ForkJoinPool.<br>
+ * The second set is put in a uniform grid, and the first set is split into blocks that are tested against the grid
+ * in parallel. A pair is only reported in the grid cell that contains the minimum corner of its intersection, so
+ * pairs are never reported twice and no shared set of reported pairs is needed. Every block writes its pairs to
+ * its own list, and the lists are joined in order at the end, so the result is the same on every run and no locks
+ * are used.
+ *
+ * @author Sagen
+ */
+public class SpatialJoin2D {
+
+    /*
+     * The smallest number of AABB's in a block
+     */
+    private static final int MIN_BLOCK_SIZE = 256;
+
+    /*
+     * The max number of grid cells for every AABB in the grid
+     */
+    private static final int CELLS_PER_BOX = 4;
+
+    /*
+     * The pool running the blocks
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a new join running on the common pool
+     */
+    public SpatialJoin2D() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new join running on a pool
+     *
+     * @param pool The pool
+     */
+    public SpatialJoin2D(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Finds every intersecting pair between two arrays of AABB's.
+     *
+     * @param first  The first AABB's
+     * @param second The second AABB's
+     * @param out    The list to add the pairs to
+     * @return The number of pairs found
+     * @see #join(AABB2D[], int, AABB2D[], int, IntList)
+     */
+    public int join(AABB2D[] first, AABB2D[] second, IntList out) {
+        return join(first, first.length, second, second.length, out);
+    }
+
+    /**
+     * Finds every intersecting pair between the first AABB's of two arrays.
+     * Every pair is added to the list as two values, the index in the first array followed by the index in the
+     * second array. Two AABB's intersect as described in {@link AABB2D#isIntersecting(AABB2D)}.
+     * The AABB's must not be changed while the join is running.
+     *
+     * @param first       The first AABB's
+     * @param firstCount  The number of first AABB's to use
+     * @param second      The second AABB's
+     * @param secondCount The number of second AABB's to use
+     * @param out         The list to add the pairs to
+     * @return The number of pairs found
+     */
+    public int join(AABB2D[] first, int firstCount, AABB2D[] second, int secondCount, IntList out) {
+        Grid grid = new Grid(second, secondCount);
+        if (firstCount == 0 || grid.size == 0) return 0;
+
+        // use a few blocks per thread, so threads that finish early can take work from the others
+        int blockSize = Math.max(MIN_BLOCK_SIZE, firstCount / (pool.getParallelism() * 8));
+        IntList[] results = new IntList[(firstCount + blockSize - 1) / blockSize];
+        pool.invoke(new JoinTask(first, firstCount, grid, blockSize, results, 0, results.length));
+
+        int start = out.size();
+        for (IntList result : results) {
+            out.addAll(result);
+        }
+        return (out.size() - start) / 2;
+    }
+
+    /**
+     * Tests a block of the first AABB's against the grid
+     *
+     * @param first The first AABB's
+     * @param start The first AABB of the block
+     * @param end   The AABB after the last AABB of the block
+     * @param grid  The grid of the second AABB's
+     * @param out   The list to add the pairs to
+     */
+    private static void joinBlock(AABB2D[] first, int start, int end, Grid grid, IntList out) {
+        for (int i = start; i < end; i++) {
+            AABB2D box = first[i];
+            int ax = box.getX(), ay = box.getY(), aw = box.getWidth(), ah = box.getHeight();
+            if (aw <= 0 || ah <= 0) continue;
+
+            // find the cells the AABB covers, and skip AABB's outside the grid
+            long minCellX = Math.max(0, grid.cellOf(ax, grid.minX));
+            long minCellY = Math.max(0, grid.cellOf(ay, grid.minY));
+            long maxCellX = Math.min(grid.cellsX - 1, grid.cellOf((long) ax + aw - 1, grid.minX));
+            long maxCellY = Math.min(grid.cellsY - 1, grid.cellOf((long) ay + ah - 1, grid.minY));
+
+            for (long cellY = minCellY; cellY <= maxCellY; cellY++) {
+                for (long cellX = minCellX; cellX <= maxCellX; cellX++) {
+                    int cell = (int) (cellY * grid.cellsX + cellX);
+                    for (int k = grid.cellStart[cell], kEnd = grid.cellStart[cell + 1]; k < kEnd; k++) {
+                        int item = grid.cellItems[k];
+                        int bx = grid.itemX[item], by = grid.itemY[item];
+                        if (!AABB2D.isIntersecting(ax, ay, aw, ah, bx, by, grid.itemW[item], grid.itemH[item])) continue;
+
+                        // only report the pair in the cell of the minimum corner of the intersection
+                        if (grid.cellOf(Math.max(ax, bx), grid.minX) != cellX || grid.cellOf(Math.max(ay, by), grid.minY) != cellY) continue;
+                        out.add(i);
+                        out.add(grid.items[item]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits a range of blocks until there is one block left, and runs it
+     */
+    private static final class JoinTask extends RecursiveAction {
+
+        /*
+         * The tasks are never serialized, the version only keeps the compiler quiet
+         */
+        private static final long serialVersionUID = 1L;
+
+        /*
+         * The first AABB's
+         */
+        private final AABB2D[] first;
+
+        /*
+         * The number of first AABB's to use
+         */
+        private final int firstCount;
+
+        /*
+         * The grid of the second AABB's
+         */
+        private final Grid grid;
+
+        /*
+         * The number of AABB's in a block
+         */
+        private final int blockSize;
+
+        /*
+         * The pairs found in every block
+         */
+        private final IntList[] results;
+
+        /*
+         * The first block of this task
+         */
+        private final int from;
+
+        /*
+         * The block after the last block of this task
+         */
+        private final int to;
+
+        /**
+         * Creates a new task
+         *
+         * @param first      The first AABB's
+         * @param firstCount The number of first AABB's to use
+         * @param grid       The grid of the second AABB's
+         * @param blockSize  The number of AABB's in a block
+         * @param results    The pairs found in every block
+         * @param from       The first block of this task
+         * @param to         The block after the last block of this task
+         */
+        JoinTask(AABB2D[] first, int firstCount, Grid grid, int blockSize, IntList[] results, int from, int to) {
+            this.first = first;
+            this.firstCount = firstCount;
+            this.grid = grid;
+            this.blockSize = blockSize;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new JoinTask(first, firstCount, grid, blockSize, results, from, mid),
+                        new JoinTask(first, firstCount, grid, blockSize, results, mid, to));
+                return;
+            }
+            IntList result = new IntList();
+            joinBlock(first, from * blockSize, Math.min(firstCount, (from + 1) * blockSize), grid, result);
+            results[from] = result;
+        }
+    }
+
+    /**
+     * A uniform grid over the second AABB's. Every cell has a list of the AABB's covering it,
+     * stored one after the other in a single array.
+     */
+    private static final class Grid {
+
+        /*
+         * The index of each AABB in the array the grid was built from
+         */
+        final int[] items;
+
+        /*
+         * The position x of each AABB
+         */
+        final int[] itemX;
+
+        /*
+         * The position y of each AABB
+         */
+        final int[] itemY;
+
+        /*
+         * The width of each AABB
+         */
+        final int[] itemW;
+
+        /*
+         * The height of each AABB
+         */
+        final int[] itemH;
+
+        /*
+         * The number of AABB's in the grid
+         */
+        final int size;
+
+        /*
+         * The position x of the grid
+         */
+        long minX;
+
+        /*
+         * The position y of the grid
+         */
+        long minY;
+
+        /*
+         * The width and height of a cell
+         */
+        long cellSize = 1;
+
+        /*
+         * The number of cells along the x axis
+         */
+        long cellsX;
+
+        /*
+         * The number of cells along the y axis
+         */
+        long cellsY;
+
+        /*
+         * The position of the first AABB of every cell in cellItems, and the end of the last cell
+         */
+        int[] cellStart;
+
+        /*
+         * The AABB's of every cell
+         */
+        int[] cellItems;
+
+        /**
+         * Builds the grid
+         *
+         * @param boxes The AABB's
+         * @param count The number of AABB's to use
+         */
+        Grid(AABB2D[] boxes, int count) {
+            // find the AABB's that can intersect anything
+            int size = 0;
+            for (int i = 0; i < count; i++) {
+                if (boxes[i].getWidth() > 0 && boxes[i].getHeight() > 0) size++;
+            }
+            this.size = size;
+            items = new int[size];
+            itemX = new int[size];
+            itemY = new int[size];
+            itemW = new int[size];
+            itemH = new int[size];
+            if (size == 0) return;
+
+            // copy the AABB's, and calculate their bounds and average size
+            long maxX = Long.MIN_VALUE, maxY = Long.MIN_VALUE;
+            long sizeSum = 0;
+            minX = Long.MAX_VALUE;
+            minY = Long.MAX_VALUE;
+            for (int i = 0, j = 0; i < count; i++) {
+                AABB2D box = boxes[i];
+                if (box.getWidth() <= 0 || box.getHeight() <= 0) continue;
+                items[j] = i;
+                itemX[j] = box.getX();
+                itemY[j] = box.getY();
+                itemW[j] = box.getWidth();
+                itemH[j] = box.getHeight();
+                minX = Math.min(minX, itemX[j]);
+                minY = Math.min(minY, itemY[j]);
+                maxX = Math.max(maxX, (long) itemX[j] + itemW[j]);
+                maxY = Math.max(maxY, (long) itemY[j] + itemH[j]);
+                sizeSum += Math.max(itemW[j], itemH[j]);
+                j++;
+            }
+
+            // cells about the size of an average AABB, but never more cells than the grid can hold
+            cellSize = Math.max(1, sizeSum / size);
+            long maxCells = (long) size * CELLS_PER_BOX;
+            while (true) {
+                cellsX = (maxX - minX + cellSize - 1) / cellSize;
+                cellsY = (maxY - minY + cellSize - 1) / cellSize;
+                if (cellsX * cellsY <= maxCells) break;
+                cellSize *= 2;
+            }
+
+            // count the AABB's in every cell, then place them after each other
+            int cells = (int) (cellsX * cellsY);
+            cellStart = new int[cells + 1];
+            for (int j = 0; j < size; j++) {
+                forEachCell(j, -1);
+            }
+            for (int cell = 1; cell < cells; cell++) {
+                cellStart[cell] += cellStart[cell - 1];
+            }
+            cellStart[cells] = cellStart[cells - 1];
+            cellItems = new int[cellStart[cells]];
+            for (int j = size - 1; j >= 0; j--) {
+                forEachCell(j, j);
+            }
+        }
+
+        /**
+         * Counts or places an AABB in every cell it covers.
+         * Counting adds one to the entry of the cell, and placing moves the entry from the end of the cell back
+         * towards its start.
+         *
+         * @param item  The AABB
+         * @param place The AABB to place, or -1 to count
+         */
+        private void forEachCell(int item, int place) {
+            long maxCellX = cellOf((long) itemX[item] + itemW[item] - 1, minX);
+            long maxCellY = cellOf((long) itemY[item] + itemH[item] - 1, minY);
+            for (long cellY = cellOf(itemY[item], minY); cellY <= maxCellY; cellY++) {
+                for (long cellX = cellOf(itemX[item], minX); cellX <= maxCellX; cellX++) {
+                    int cell = (int) (cellY * cellsX + cellX);
+                    if (place < 0) {
+                        cellStart[cell]++;
+                    } else {
+                        cellItems[--cellStart[cell]] = place;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Calculates the cell of a position along an axis
+         *
+         * @param position The position
+         * @param min      The position of the grid along the axis
+         * @return The cell, which may be outside the grid
+         */
+        long cellOf(long position, long min) {
+            return Math.floorDiv(position - min, cellSize);
+        }
+    }
+}
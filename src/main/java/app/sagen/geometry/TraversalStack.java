@@ -0,0 +1,53 @@
+package app.sagen.geometry;
+
+import java.util.Arrays;
+
+/**
+ * The stack of nodes left to visit while a tree is searched, like in {@link AABBTree2D} and {@link AABBTree3D}.
+ * The arrays only grow, so one stack can be reused for any number of searches without creating new arrays.
+ * A stack must only be used by one thread at a time.
+ *
+ * @author Sagen
+ */
+public class TraversalStack {
+
+    /*
+     * The nodes left to visit
+     */
+    int[] nodes;
+
+    /*
+     * The time a ray enters every node left to visit
+     */
+    double[] times;
+
+    /**
+     * Creates a new empty stack
+     */
+    public TraversalStack() {
+        this(32);
+    }
+
+    /**
+     * Creates a new empty stack
+     *
+     * @param capacity The number of nodes the stack holds before it has to grow
+     */
+    public TraversalStack(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        nodes = new int[capacity];
+        times = new double[capacity];
+    }
+
+    /**
+     * Grows the stack so it holds at least a number of nodes
+     *
+     * @param capacity The number of nodes
+     */
+    void ensureCapacity(int capacity) {
+        if (capacity <= nodes.length) return;
+        int newCapacity = Math.max(capacity, nodes.length * 2);
+        nodes = Arrays.copyOf(nodes, newCapacity);
+        times = Arrays.copyOf(times, newCapacity);
+    }
+}
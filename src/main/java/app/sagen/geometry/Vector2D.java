@@ -0,0 +1,291 @@
+package app.sagen.geometry;
+
+/**
+ * A class representing an immutable vector.
+ * Every method returns a new vector instead of changing this one, so instances can be shared freely between
+ * threads without copying them. Temporary vectors in a chain of calls are small and never escape, so the
+ * JIT compiler can remove them.
+ *
+ * @author Sagen
+ */
+public final class Vector2D {
+
+    /**
+     * The null-vector where x = 0, y = 0
+     */
+    public static final Vector2D ZERO = new Vector2D(0, 0);
+
+    private final double x;
+    private final double y;
+
+    /**
+     * Creates a new vector instance
+     *
+     * @param x The x scalar
+     * @param y The y scalar
+     */
+    public Vector2D(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Creates a new vector with the values of a mutable vector
+     *
+     * @param vector The vector to copy
+     */
+    public Vector2D(MutableVector2D vector) {
+        this(vector.getX(), vector.getY());
+    }
+
+    /**
+     * Returns the x
+     *
+     * @return The x
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Returns the y
+     *
+     * @return The y
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Creates a copy of this vector with a new x
+     *
+     * @param x The new x
+     * @return The new vector
+     */
+    public Vector2D withX(double x) {
+        return new Vector2D(x, y);
+    }
+
+    /**
+     * Creates a copy of this vector with a new y
+     *
+     * @param y The new y
+     * @return The new vector
+     */
+    public Vector2D withY(double y) {
+        return new Vector2D(x, y);
+    }
+
+    /**
+     * Returns the length of this vector
+     * Calculated with l = sqrt(x * x + y * y)
+     *
+     * @return The length of the vector
+     */
+    public double length() {
+        return Math.sqrt(x * x + y * y);
+    }
+
+    /**
+     * Returns the length squared of this vector
+     * This is better than length because it does not use the resource heavy square root.
+     *
+     * @return The length squared
+     */
+    public double lengthSqr() {
+        return x * x + y * y;
+    }
+
+    /**
+     * Adds another vector to this vector
+     *
+     * @param other The vector to add
+     * @return The sum
+     */
+    public Vector2D add(Vector2D other) {
+        return new Vector2D(x + other.x, y + other.y);
+    }
+
+    /**
+     * Adds a number to the x and y scalar
+     *
+     * @param x The x to add
+     * @param y The y to add
+     * @return The sum
+     */
+    public Vector2D add(double x, double y) {
+        return new Vector2D(this.x + x, this.y + y);
+    }
+
+    /**
+     * Subtracts another vector from this vector
+     *
+     * @param other the vector to subtract
+     * @return The difference
+     */
+    public Vector2D sub(Vector2D other) {
+        return new Vector2D(x - other.x, y - other.y);
+    }
+
+    /**
+     * Subtracts a number from the x and y scalar
+     *
+     * @param x The x to subtract
+     * @param y The y to subtract
+     * @return The difference
+     */
+    public Vector2D sub(double x, double y) {
+        return new Vector2D(this.x - x, this.y - y);
+    }
+
+    /**
+     * Multiplies this vector by a number
+     *
+     * @param n The number to multiply with
+     * @return The product
+     */
+    public Vector2D mul(double n) {
+        return new Vector2D(x * n, y * n);
+    }
+
+    /**
+     * Divides this vector by a number
+     *
+     * @param n The number to divide by
+     * @return The quotient
+     */
+    public Vector2D div(double n) {
+        return new Vector2D(x / n, y / n);
+    }
+
+    /**
+     * Normalises this vector so that length == 1
+     *
+     * @return The normalised vector, or this vector if the length is 0
+     */
+    public Vector2D nor() {
+        double length = length();
+        if (length == 0) return this;
+        return new Vector2D(x / length, y / length);
+    }
+
+    /**
+     * Returns the dot product between this and an other vector
+     * Calculated by A.x * B.x + A.y * B.y
+     *
+     * @param other The other vector
+     * @return The dot product
+     */
+    public double dot(Vector2D other) {
+        return x * other.x + y * other.y;
+    }
+
+    /**
+     * Calculates the distance from another vector
+     * This uses square root and uses a lot of resources, so prefer to use Vector2D.distSqr(Vector2D other)
+     *
+     * @param other The other vector
+     * @return The distance between
+     */
+    public double dist(Vector2D other) {
+        return Math.sqrt(distSqr(other));
+    }
+
+    /**
+     * Calculates the distance squared from another vector
+     * This is better than dist because it does not use the resource heavy square root.
+     *
+     * @param other The other vector
+     * @return The distance between
+     */
+    public double distSqr(Vector2D other) {
+        double dx = x - other.x;
+        double dy = y - other.y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Returns the angle between one point an another
+     *
+     * @param other The other point
+     * @return The angle between in degrees
+     */
+    public double getAngleInDegrees(Vector2D other) {
+        return Math.atan2(other.y - y, other.x - x) * 180 / Math.PI;
+    }
+
+    /**
+     * Method for rotating a vector around its starting position.
+     *
+     * @param degrees The degrees to rotate
+     * @return The rotated vector
+     */
+    public Vector2D rotate(double degrees) {
+        double rad = degrees * Math.PI / 180;
+        return rotate(Math.sin(rad), Math.cos(rad));
+    }
+
+    /**
+     * Method for rotating a vector around its starting position.
+     *
+     * @param rotation The rotation
+     * @return The rotated vector
+     */
+    public Vector2D rotate(Rotation rotation) {
+        return rotate(rotation.getSin(), rotation.getCos());
+    }
+
+    /**
+     * Method for rotating a vector around its starting position by an angle with a known sine and cosine.
+     *
+     * @param sin The sine of the angle
+     * @param cos The cosine of the angle
+     * @return The rotated vector
+     */
+    public Vector2D rotate(double sin, double cos) {
+        return new Vector2D(x * cos - y * sin, x * sin + y * cos);
+    }
+
+    /**
+     * Creates a mutable copy of this vector
+     *
+     * @return The mutable vector
+     */
+    public MutableVector2D toMutable() {
+        return new MutableVector2D(x, y);
+    }
+
+    /**
+     * Returns a string representation of this class
+     *
+     * @return The string representation
+     */
+    @Override
+    public String toString() {
+        return "Vector2D(" + x + ", " + y + ")";
+    }
+
+    /**
+     * Returns true if the other object is a Vector2D with the same x and y
+     *
+     * @param other The vector to compare with
+     * @return True if they are equal
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Vector2D)) return false;
+        Vector2D vector = (Vector2D) other;
+        return Double.doubleToLongBits(x) == Double.doubleToLongBits(vector.x)
+                && Double.doubleToLongBits(y) == Double.doubleToLongBits(vector.y);
+    }
+
+    /**
+     * Calculates a hash code from the x and y
+     *
+     * @return The hash code
+     */
+    @Override
+    public int hashCode() {
+        return 31 * Double.hashCode(x) + Double.hashCode(y);
+    }
+}
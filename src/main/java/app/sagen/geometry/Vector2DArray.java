@@ -0,0 +1,684 @@
+package app.sagen.geometry;
+
+import java.util.Arrays;
+
+/**
+ * A list of 2D vectors stored as two primitive arrays, one for x and one for y.
+ * The bulk methods update every vector in a single loop over the arrays, which the JIT compiler can vectorize.
+ * This avoids creating one MutableVector2D object per vector when working with many vectors at once.
+ *
+ * @author Sagen
+ */
+public class Vector2DArray {
+
+    /*
+     * The x of every vector
+     */
+    private double[] xs;
+
+    /*
+     * The y of every vector
+     */
+    private double[] ys;
+
+    /*
+     * The number of vectors
+     */
+    private int size;
+
+    /**
+     * Creates a new empty list of vectors
+     *
+     * @param capacity The initial capacity
+     */
+    public Vector2DArray(int capacity) {
+        xs = new double[Math.max(capacity, 1)];
+        ys = new double[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Creates a new list with a copy of the vectors in an array
+     *
+     * @param vectors The vectors to copy
+     */
+    public Vector2DArray(MutableVector2D[] vectors) {
+        this(vectors.length);
+        for (MutableVector2D vector : vectors) {
+            append(vector.getX(), vector.getY());
+        }
+    }
+
+    /**
+     * Adds a vector to the end of the list
+     *
+     * @param x The x
+     * @param y The y
+     * @return The index of the new vector
+     */
+    public int append(double x, double y) {
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+        }
+        xs[size] = x;
+        ys[size] = y;
+        return size++;
+    }
+
+    /**
+     * Adds a copy of a vector to the end of the list
+     *
+     * @param vector The vector to copy
+     * @return The index of the new vector
+     */
+    public int append(MutableVector2D vector) {
+        return append(vector.getX(), vector.getY());
+    }
+
+    /**
+     * Calculates the size of the list
+     *
+     * @return The number of vectors
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Clears the list. The capacity is kept, so the list can be reused without creating new arrays.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Gets the x of a vector
+     *
+     * @param index The index of the vector
+     * @return The x
+     */
+    public double getX(int index) {
+        checkIndex(index);
+        return xs[index];
+    }
+
+    /**
+     * Gets the y of a vector
+     *
+     * @param index The index of the vector
+     * @return The y
+     */
+    public double getY(int index) {
+        checkIndex(index);
+        return ys[index];
+    }
+
+    /**
+     * Copies a vector into a MutableVector2D
+     *
+     * @param index The index of the vector
+     * @param dest  The vector to copy into
+     * @return The destination vector
+     */
+    public MutableVector2D get(int index, MutableVector2D dest) {
+        checkIndex(index);
+        return dest.set(xs[index], ys[index]);
+    }
+
+    /**
+     * Updates a vector
+     *
+     * @param index The index of the vector
+     * @param x     The new x
+     * @param y     The new y
+     */
+    public void set(int index, double x, double y) {
+        checkIndex(index);
+        xs[index] = x;
+        ys[index] = y;
+    }
+
+    /**
+     * Updates a vector with the values of a MutableVector2D
+     *
+     * @param index  The index of the vector
+     * @param vector The new values
+     */
+    public void set(int index, MutableVector2D vector) {
+        set(index, vector.getX(), vector.getY());
+    }
+
+    /**
+     * Gets the array holding the x of every vector.
+     * The array may be longer than the list, and is replaced when the list grows.
+     *
+     * @return The x array
+     */
+    public double[] getXArray() {
+        return xs;
+    }
+
+    /**
+     * Gets the array holding the y of every vector.
+     * The array may be longer than the list, and is replaced when the list grows.
+     *
+     * @return The y array
+     */
+    public double[] getYArray() {
+        return ys;
+    }
+
+    /**
+     * Adds a number to the x and y of every vector
+     *
+     * @param x The x to add
+     * @param y The y to add
+     * @return This instance
+     */
+    public Vector2DArray add(double x, double y) {
+        double[] xs = this.xs;
+        double[] ys = this.ys;
+        for (int i = 0; i < size; i++) {
+            xs[i] += x;
+            ys[i] += y;
+        }
+        return this;
+    }
+
+    /**
+     * Subtracts a number from the x and y of every vector
+     *
+     * @param x The x to subtract
+     * @param y The y to subtract
+     * @return This instance
+     */
+    public Vector2DArray sub(double x, double y) {
+        return add(-x, -y);
+    }
+
+    /**
+     * Adds the vectors of another list to the vectors in this list, index by index
+     *
+     * @param other The vectors to add
+     * @return This instance
+     */
+    public Vector2DArray add(Vector2DArray other) {
+        checkSize(other);
+        double[] xs = this.xs;
+        double[] ys = this.ys;
+        double[] otherXs = other.xs;
+        double[] otherYs = other.ys;
+        for (int i = 0; i < size; i++) {
+            xs[i] += otherXs[i];
+            ys[i] += otherYs[i];
+        }
+        return this;
+    }
+
+    /**
+     * Adds the vectors of another list multiplied by a number to the vectors in this list, index by index.
+     * This is useful for moving positions by velocities, with n as the time step.
+     *
+     * @param other The vectors to add
+     * @param n     The number to multiply the other vectors with
+     * @return This instance
+     */
+    public Vector2DArray addScaled(Vector2DArray other, double n) {
+        checkSize(other);
+        double[] xs = this.xs;
+        double[] ys = this.ys;
+        double[] otherXs = other.xs;
+        double[] otherYs = other.ys;
+        for (int i = 0; i < size; i++) {
+            xs[i] += otherXs[i] * n;
+            ys[i] += otherYs[i] * n;
+        }
+        return this;
+    }
+
+    /**
+     * Subtracts the vectors of another list from the vectors in this list, index by index
+     *
+     * @param other The vectors to subtract
+     * @return This instance
+     */
+    public Vector2DArray sub(Vector2DArray other) {
+        checkSize(other);
+        double[] xs = this.xs;
+        double[] ys = this.ys;
+        double[] otherXs = other.xs;
+        double[] otherYs = other.ys;
+        for (int i = 0; i < size; i++) {
+            xs[i] -= otherXs[i];
+            ys[i] -= otherYs[i];
+        }
+        return this;
+    }
+
+    /**
+     * Multiplies every vector by a number
+     *
+     * @param n The number to multiply with
+     * @return This instance
+     */
+    public Vector2DArray mul(double n) {
+        double[] xs = this.xs;
+        double[] ys = this.ys;
+        for (int i = 0; i < size; i++) {
+            xs[i] *= n;
+            ys[i] *= n;
+        }
+        return this;
+    }
+
+    /**
+     * Divides every vector by a number
+     *
+     * @param n The number to divide by
+     * @return This instance
+     */
+    public Vector2DArray div(double n) {
+        return mul(1 / n);
+    }
+
+    /**
+     * Normalises every vector so that length == 1. Vectors with a length of 0 are not changed.
+     *
+     * @return This instance
+     */
+    public Vector2DArray nor() {
+        double[] xs = this.xs;
+        double[] ys = this.ys;
+        for (int i = 0; i < size; i++) {
+            double length = Math.sqrt(xs[i] * xs[i] + ys[i] * ys[i]);
+            double inverse = length != 0 ? 1 / length : 1;
+            xs[i] *= inverse;
+            ys[i] *= inverse;
+        }
+        return this;
+    }
+
+    /**
+     * Rotates every vector around its starting position
+     *
+     * @param degrees The degrees to rotate
+     * @return This instance
+     */
+    public Vector2DArray rotate(double degrees) {
+        return rotate(new Rotation(degrees));
+    }
+
+    /**
+     * Rotates every vector around its starting position
+     *
+     * @param rotation The rotation
+     * @return This instance
+     */
+    public Vector2DArray rotate(Rotation rotation) {
+        double cos = rotation.getCos();
+        double sin = rotation.getSin();
+        double[] xs = this.xs;
+        double[] ys = this.ys;
+        for (int i = 0; i < size; i++) {
+            double x = xs[i];
+            double y = ys[i];
+            xs[i] = x * cos - y * sin;
+            ys[i] = x * sin + y * cos;
+        }
+        return this;
+    }
+
+    /**
+     * Calculates the length of every vector
+     *
+     * @param out The array to store the lengths in
+     * @return The array with the lengths
+     */
+    public double[] length(double[] out) {
+        checkSize(out);
+        double[] xs = this.xs;
+        double[] ys = this.ys;
+        for (int i = 0; i < size; i++) {
+            out[i] = Math.sqrt(xs[i] * xs[i] + ys[i] * ys[i]);
+        }
+        return out;
+    }
+
+    /**
+     * Calculates the length squared of every vector.
+     * This is faster than length because it does not use the square root.
+     *
+     * @param out The array to store the lengths in
+     * @return The array with the lengths
+     */
+    public double[] lengthSqr(double[] out) {
+        checkSize(out);
+        double[] xs = this.xs;
+        double[] ys = this.ys;
+        for (int i = 0; i < size; i++) {
+            out[i] = xs[i] * xs[i] + ys[i] * ys[i];
+        }
+        return out;
+    }
+
+    /**
+     * Calculates the dot product between the vectors of this list and another list, index by index
+     *
+     * @param other The other vectors
+     * @param out   The array to store the dot products in
+     * @return The array with the dot products
+     */
+    public double[] dot(Vector2DArray other, double[] out) {
+        checkSize(other);
+        checkSize(out);
+        double[] xs = this.xs;
+        double[] ys = this.ys;
+        double[] otherXs = other.xs;
+        double[] otherYs = other.ys;
+        for (int i = 0; i < size; i++) {
+            out[i] = xs[i] * otherXs[i] + ys[i] * otherYs[i];
+        }
+        return out;
+    }
+
+    /**
+     * Creates a new cursor for reading and updating single vectors in this list without creating objects
+     *
+     * @return The cursor, pointing at the first vector
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Checks that an index is inside the list
+     *
+     * @param index The index
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    /**
+     * Checks that another list has at least as many vectors as this list
+     *
+     * @param other The other list
+     */
+    private void checkSize(Vector2DArray other) {
+        if (other.size < size) throw new IllegalArgumentException("Size " + other.size + " is less than " + size);
+    }
+
+    /**
+     * Checks that an array can hold a value for every vector in this list
+     *
+     * @param out The array
+     */
+    private void checkSize(double[] out) {
+        if (out.length < size) throw new IllegalArgumentException("Length " + out.length + " is less than " + size);
+    }
+
+    /**
+     * Creates a string representation of this class
+     *
+     * @return The string representation
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("Vector2DArray[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) builder.append(", ");
+            builder.append("(").append(xs[i]).append(", ").append(ys[i]).append(")");
+        }
+        return builder.append("]").toString();
+    }
+
+    /**
+     * A view of a single vector in the list. The cursor can be moved between vectors, so one cursor
+     * can be used to visit every vector without creating objects.
+     * The methods work like the ones in MutableVector2D, and update the vector in the list.
+     */
+    public class Cursor {
+
+        /*
+         * The index of the vector
+         */
+        private int index;
+
+        /**
+         * Moves the cursor to a vector
+         *
+         * @param index The index of the vector
+         * @return This cursor
+         */
+        public Cursor at(int index) {
+            checkIndex(index);
+            this.index = index;
+            return this;
+        }
+
+        /**
+         * Gets the index of the vector
+         *
+         * @return The index
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns the x
+         *
+         * @return The x
+         */
+        public double getX() {
+            return xs[index];
+        }
+
+        /**
+         * Returns the y
+         *
+         * @return The y
+         */
+        public double getY() {
+            return ys[index];
+        }
+
+        /**
+         * Sets the x
+         *
+         * @param x The new x
+         * @return This cursor
+         */
+        public Cursor setX(double x) {
+            xs[index] = x;
+            return this;
+        }
+
+        /**
+         * Sets the y
+         *
+         * @param y The new y
+         * @return This cursor
+         */
+        public Cursor setY(double y) {
+            ys[index] = y;
+            return this;
+        }
+
+        /**
+         * Sets the x and y
+         *
+         * @param x The new x
+         * @param y The new y
+         * @return This cursor
+         */
+        public Cursor set(double x, double y) {
+            xs[index] = x;
+            ys[index] = y;
+            return this;
+        }
+
+        /**
+         * Returns the length of the vector
+         *
+         * @return The length of the vector
+         */
+        public double length() {
+            double x = xs[index];
+            double y = ys[index];
+            return Math.sqrt(x * x + y * y);
+        }
+
+        /**
+         * Adds a number to the x and y scalar
+         *
+         * @param x The x to add
+         * @param y The y to add
+         * @return This cursor
+         */
+        public Cursor add(double x, double y) {
+            xs[index] += x;
+            ys[index] += y;
+            return this;
+        }
+
+        /**
+         * Adds another vector to the vector
+         *
+         * @param other The vector to add
+         * @return This cursor
+         */
+        public Cursor add(MutableVector2D other) {
+            return add(other.getX(), other.getY());
+        }
+
+        /**
+         * Subtracts a number from the x and y scalar
+         *
+         * @param x The x to subtract
+         * @param y The y to subtract
+         * @return This cursor
+         */
+        public Cursor sub(double x, double y) {
+            xs[index] -= x;
+            ys[index] -= y;
+            return this;
+        }
+
+        /**
+         * Subtracts another vector from the vector
+         *
+         * @param other The vector to subtract
+         * @return This cursor
+         */
+        public Cursor sub(MutableVector2D other) {
+            return sub(other.getX(), other.getY());
+        }
+
+        /**
+         * Multiplies the vector by a number
+         *
+         * @param n The number to multiply with
+         * @return This cursor
+         */
+        public Cursor mul(double n) {
+            xs[index] *= n;
+            ys[index] *= n;
+            return this;
+        }
+
+        /**
+         * Divides the vector by a number
+         *
+         * @param n The number to divide by
+         * @return This cursor
+         */
+        public Cursor div(double n) {
+            xs[index] /= n;
+            ys[index] /= n;
+            return this;
+        }
+
+        /**
+         * Normalises the vector so that length == 1
+         *
+         * @return This cursor
+         */
+        public Cursor nor() {
+            double length = length();
+            if (length != 0) {
+                xs[index] /= length;
+                ys[index] /= length;
+            }
+            return this;
+        }
+
+        /**
+         * Returns the dot product between the vector and an other vector
+         *
+         * @param other The other vector
+         * @return The dot product
+         */
+        public double dot(MutableVector2D other) {
+            return xs[index] * other.getX() + ys[index] * other.getY();
+        }
+
+        /**
+         * Calculates the distance squared from another vector
+         *
+         * @param other The other vector
+         * @return The distance between
+         */
+        public double distSqr(MutableVector2D other) {
+            double dx = xs[index] - other.getX();
+            double dy = ys[index] - other.getY();
+            return dx * dx + dy * dy;
+        }
+
+        /**
+         * Rotates the vector around its starting position
+         *
+         * @param degrees The degrees to rotate
+         * @return This cursor
+         */
+        public Cursor rotate(double degrees) {
+            return rotate(new Rotation(degrees));
+        }
+
+        /**
+         * Rotates the vector around its starting position
+         *
+         * @param rotation The rotation
+         * @return This cursor
+         */
+        public Cursor rotate(Rotation rotation) {
+            double cos = rotation.getCos();
+            double sin = rotation.getSin();
+            double x = xs[index];
+            double y = ys[index];
+            xs[index] = x * cos - y * sin;
+            ys[index] = x * sin + y * cos;
+            return this;
+        }
+
+        /**
+         * Copies the vector into a MutableVector2D
+         *
+         * @param dest The vector to copy into
+         * @return The destination vector
+         */
+        public MutableVector2D get(MutableVector2D dest) {
+            return dest.set(xs[index], ys[index]);
+        }
+
+        /**
+         * Returns a string representation of this class
+         *
+         * @return The string representation
+         */
+        @Override
+        public String toString() {
+            return "Vector2DArray.Cursor(" + xs[index] + ", " + ys[index] + ")";
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package app.sagen.geometry;
+
+/**
+ * A class representing an immutable 3D vector.
+ * Every method returns a new vector instead of changing this one, so instances can be shared freely between
+ * threads without copying them. Temporary vectors in a chain of calls are small and never escape, so the
+ * JIT compiler can remove them.
+ *
+ * @author Sagen
+ */
+public final class Vector3D {
+
+    /**
+     * The null-vector where x = 0, y = 0, z = 0
+     */
+    public static final Vector3D ZERO = new Vector3D(0, 0, 0);
+
+    private final double x;
+    private final double y;
+    private final double z;
+
+    /**
+     * Creates a new vector instance
+     *
+     * @param x The x scalar
+     * @param y The y scalar
+     * @param z The z scalar
+     */
+    public Vector3D(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * Returns the x
+     *
+     * @return The x
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Returns the y
+     *
+     * @return The y
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Returns the z
+     *
+     * @return The z
+     */
+    public double getZ() {
+        return z;
+    }
+
+    /**
+     * Creates a copy of this vector with a new x
+     *
+     * @param x The new x
+     * @return The new vector
+     */
+    public Vector3D withX(double x) {
+        return new Vector3D(x, y, z);
+    }
+
+    /**
+     * Creates a copy of this vector with a new y
+     *
+     * @param y The new y
+     * @return The new vector
+     */
+    public Vector3D withY(double y) {
+        return new Vector3D(x, y, z);
+    }
+
+    /**
+     * Creates a copy of this vector with a new z
+     *
+     * @param z The new z
+     * @return The new vector
+     */
+    public Vector3D withZ(double z) {
+        return new Vector3D(x, y, z);
+    }
+
+    /**
+     * Returns the length of this vector
+     * Calculated with l = sqrt(x * x + y * y + z * z)
+     *
+     * @return The length of the vector
+     */
+    public double length() {
+        return Math.sqrt(x * x + y * y + z * z);
+    }
+
+    /**
+     * Returns the length squared of this vector
+     * This is better than length because it does not use the resource heavy square root.
+     *
+     * @return The length squared
+     */
+    public double lengthSqr() {
+        return x * x + y * y + z * z;
+    }
+
+    /**
+     * Adds another vector to this vector
+     *
+     * @param other The vector to add
+     * @return The sum
+     */
+    public Vector3D add(Vector3D other) {
+        return new Vector3D(x + other.x, y + other.y, z + other.z);
+    }
+
+    /**
+     * Adds a number to the x, y and z scalar
+     *
+     * @param x The x to add
+     * @param y The y to add
+     * @param z The z to add
+     * @return The sum
+     */
+    public Vector3D add(double x, double y, double z) {
+        return new Vector3D(this.x + x, this.y + y, this.z + z);
+    }
+
+    /**
+     * Subtracts another vector from this vector
+     *
+     * @param other the vector to subtract
+     * @return The difference
+     */
+    public Vector3D sub(Vector3D other) {
+        return new Vector3D(x - other.x, y - other.y, z - other.z);
+    }
+
+    /**
+     * Subtracts a number from the x, y and z scalar
+     *
+     * @param x The x to subtract
+     * @param y The y to subtract
+     * @param z The z to subtract
+     * @return The difference
+     */
+    public Vector3D sub(double x, double y, double z) {
+        return new Vector3D(this.x - x, this.y - y, this.z - z);
+    }
+
+    /**
+     * Multiplies this vector by a number
+     *
+     * @param n The number to multiply with
+     * @return The product
+     */
+    public Vector3D mul(double n) {
+        return new Vector3D(x * n, y * n, z * n);
+    }
+
+    /**
+     * Divides this vector by a number
+     *
+     * @param n The number to divide by
+     * @return The quotient
+     */
+    public Vector3D div(double n) {
+        return new Vector3D(x / n, y / n, z / n);
+    }
+
+    /**
+     * Normalises this vector so that length == 1
+     *
+     * @return The normalised vector, or this vector if the length is 0
+     */
+    public Vector3D nor() {
+        double length = length();
+        if (length == 0) return this;
+        return new Vector3D(x / length, y / length, z / length);
+    }
+
+    /**
+     * Returns the dot product between this and an other vector
+     * Calculated by A.x * B.x + A.y * B.y + A.z * B.z
+     *
+     * @param other The other vector
+     * @return The dot product
+     */
+    public double dot(Vector3D other) {
+        return x * other.x + y * other.y + z * other.z;
+    }
+
+    /**
+     * Returns the cross product between this and an other vector
+     *
+     * @param other The other vector
+     * @return The cross product
+     */
+    public Vector3D cross(Vector3D other) {
+        return new Vector3D(
+                y * other.z - z * other.y,
+                z * other.x - x * other.z,
+                x * other.y - y * other.x);
+    }
+
+    /**
+     * Calculates the distance from another vector
+     * This uses square root and uses a lot of resources, so prefer to use Vector3D.distSqr(Vector3D other)
+     *
+     * @param other The other vector
+     * @return The distance between
+     */
+    public double dist(Vector3D other) {
+        return Math.sqrt(distSqr(other));
+    }
+
+    /**
+     * Calculates the distance squared from another vector
+     * This is better than dist because it does not use the resource heavy square root.
+     *
+     * @param other The other vector
+     * @return The distance between
+     */
+    public double distSqr(Vector3D other) {
+        double dx = x - other.x;
+        double dy = y - other.y;
+        double dz = z - other.z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Returns a string representation of this class
+     *
+     * @return The string representation
+     */
+    @Override
+    public String toString() {
+        return "Vector3D(" + x + ", " + y + ", " + z + ")";
+    }
+
+    /**
+     * Returns true if the other object is a Vector3D with the same x, y and z
+     *
+     * @param other The vector to compare with
+     * @return True if they are equal
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Vector3D)) return false;
+        Vector3D vector = (Vector3D) other;
+        return Double.doubleToLongBits(x) == Double.doubleToLongBits(vector.x)
+                && Double.doubleToLongBits(y) == Double.doubleToLongBits(vector.y)
+                && Double.doubleToLongBits(z) == Double.doubleToLongBits(vector.z);
+    }
+
+    /**
+     * Calculates a hash code from the x, y and z
+     *
+     * @return The hash code
+     */
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Double.hashCode(x) + Double.hashCode(y)) + Double.hashCode(z);
+    }
+}